@@ -25,12 +25,16 @@
 package com.github.justhm228.dynagent.agent;
 
 import com.github.justhm228.dynagent.internal.agent.*;
+import com.github.justhm228.dynagent.internal.memory.*;
 import java.io.*;
 import static java.lang.StackWalker.*;
 import static java.lang.StackWalker.Option.*;
 import java.lang.instrument.*;
 import java.nio.*;
+import java.time.*;
 import java.util.*;
+import java.util.concurrent.*;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.Objects.*;
 import static java.util.Set.*;
 import java.util.jar.*;
@@ -38,7 +42,7 @@ import java.util.jar.*;
 public final class Dynagent {
 
 	// Whitelisted classes:
-	private static final Set<Class<?>> WHITELIST = new HashSet<>(1); // <- At least a single class WILL be whitelisted
+	private static final Whitelist WHITELIST = new Whitelist(); // <- Checked without any lock
 
 	private Dynagent() throws UnsupportedOperationException {
 
@@ -53,6 +57,21 @@ public final class Dynagent {
 	// --------------------------- Stable API ---------------------------
 
 	// ...
+	/**
+	 * Installs Dynagent and whitelists the caller and the specified classes.
+	 *
+	 * <p>
+	 *     Concurrent callers join the same installation. If Dynagent is already installed, nothing is installed
+	 *     again, and a late caller isn't whitelisted (only an installing caller is). A late call isn't an error
+	 *     (it doesn't throw {@code IllegalStateException}); its result just tells if the caller can use Dynagent.
+	 * </p>
+	 *
+	 * @param whitelisted Classes to be whitelisted along with the caller.
+	 * @return true if the caller is whitelisted now (it installed Dynagent, or it was already whitelisted);
+	 *         false if the installation failed, or if Dynagent was already installed and the caller isn't whitelisted.
+	 * @throws NullPointerException If the whitelist (or any class of it) is null.
+	 * @throws IllegalCallerException If the caller can't be found.
+	 */
 	@jdk.internal.reflect.CallerSensitive()
 	@jdk.internal.vm.annotation.ForceInline()
 	public static boolean install(final Class<?>[] whitelisted) throws NullPointerException, IllegalStateException, IllegalCallerException {
@@ -69,6 +88,80 @@ public final class Dynagent {
 		}
 	}
 
+	/**
+	 * Installs Dynagent and whitelists the caller and all classes of the specified modules.
+	 *
+	 * <p>
+	 *     Concurrent callers join the same installation. If Dynagent is already installed, nothing is installed
+	 *     again, and a late caller isn't whitelisted (only an installing caller is). A late call isn't an error
+	 *     (it doesn't throw {@code IllegalStateException}); its result just tells if the caller can use Dynagent.
+	 * </p>
+	 *
+	 * @param whitelisted Modules to be whitelisted along with the caller.
+	 * @return true if the caller is whitelisted now (it installed Dynagent, or it was already whitelisted);
+	 *         false if the installation failed, or if Dynagent was already installed and the caller isn't whitelisted.
+	 * @throws NullPointerException If the whitelist (or any module of it) is null.
+	 * @throws IllegalCallerException If the caller can't be found.
+	 */
+	@jdk.internal.reflect.CallerSensitive()
+	@jdk.internal.vm.annotation.ForceInline()
+	public static boolean install(final Module[] whitelisted) throws NullPointerException, IllegalStateException, IllegalCallerException {
+
+		// Call to internal implementation:
+		try {
+
+			return install(new Class<?>[0], whitelisted, new String[0], getInstance(RETAIN_CLASS_REFERENCE).getCallerClass()); // Call with caller
+
+		} catch (final SecurityException inaccessible) {
+
+			return install((Class<?>) null); // Call without caller
+		}
+	}
+
+	/**
+	 * Installs Dynagent and whitelists the caller and all classes of the specified packages of the caller's module.
+	 *
+	 * <p>
+	 *     Concurrent callers join the same installation. If Dynagent is already installed, nothing is installed
+	 *     again, and a late caller isn't whitelisted (only an installing caller is). A late call isn't an error
+	 *     (it doesn't throw {@code IllegalStateException}); its result just tells if the caller can use Dynagent.
+	 * </p>
+	 *
+	 * @param whitelisted Names of packages to be whitelisted along with the caller.
+	 * @return true if the caller is whitelisted now (it installed Dynagent, or it was already whitelisted);
+	 *         false if the installation failed, or if Dynagent was already installed and the caller isn't whitelisted.
+	 * @throws NullPointerException If the whitelist (or any package name of it) is null.
+	 * @throws IllegalArgumentException If any package name of the whitelist is empty.
+	 * @throws IllegalCallerException If the caller can't be found.
+	 */
+	@jdk.internal.reflect.CallerSensitive()
+	@jdk.internal.vm.annotation.ForceInline()
+	public static boolean install(final String[] whitelisted) throws NullPointerException, IllegalArgumentException, IllegalStateException, IllegalCallerException {
+
+		// Call to internal implementation:
+		try {
+
+			return install(new Class<?>[0], new Module[0], whitelisted, getInstance(RETAIN_CLASS_REFERENCE).getCallerClass()); // Call with caller
+
+		} catch (final SecurityException inaccessible) {
+
+			return install((Class<?>) null); // Call without caller
+		}
+	}
+
+	/**
+	 * Installs Dynagent and whitelists the caller.
+	 *
+	 * <p>
+	 *     Concurrent callers join the same installation. If Dynagent is already installed, nothing is installed
+	 *     again, and a late caller isn't whitelisted (only an installing caller is). A late call isn't an error
+	 *     (it doesn't throw {@code IllegalStateException}); its result just tells if the caller can use Dynagent.
+	 * </p>
+	 *
+	 * @return true if the caller is whitelisted now (it installed Dynagent, or it was already whitelisted);
+	 *         false if the installation failed, or if Dynagent was already installed and the caller isn't whitelisted.
+	 * @throws IllegalCallerException If the caller can't be found.
+	 */
 	@jdk.internal.reflect.CallerSensitive()
 	@jdk.internal.vm.annotation.ForceInline()
 	public static boolean install() throws IllegalStateException, IllegalCallerException {
@@ -85,11 +178,145 @@ public final class Dynagent {
 		}
 	}
 
+	/**
+	 * Installs Dynagent, waiting for it no longer than the specified timeout, and whitelists the caller and the
+	 * specified classes if it's installed in time.
+	 *
+	 * <p>
+	 *     Concurrent callers join the same installation, and it's cancelled only when every one of them stopped
+	 *     waiting for it. If Dynagent is already installed, nothing is installed again, and a late caller isn't
+	 *     whitelisted (only an installing caller is). A late call isn't an error (it doesn't throw
+	 *     {@code IllegalStateException}); its report just tells if the caller can use Dynagent.
+	 * </p>
+	 *
+	 * @param timeout How long to wait for the installation.
+	 * @param whitelisted Classes to be whitelisted along with the caller.
+	 * @return A report of the installation: {@code INSTALLED} if the caller is whitelisted now; {@code FAILED} if
+	 *         the installation failed, or if Dynagent was already installed and the caller isn't whitelisted;
+	 *         {@code TIMED_OUT} if the caller stopped waiting for it.
+	 * @throws NullPointerException If the timeout or the whitelist (or any class of it) is null.
+	 * @throws IllegalCallerException If the caller can't be found.
+	 */
+	@jdk.internal.reflect.CallerSensitive()
+	@jdk.internal.vm.annotation.ForceInline()
+	public static InstallReport install(final Duration timeout, final Class<?>[] whitelisted) throws NullPointerException, IllegalStateException, IllegalCallerException {
+
+		// Call to internal implementation:
+		try {
+
+			return install(timeout, whitelisted, getInstance(RETAIN_CLASS_REFERENCE).getCallerClass()); // Call with caller
+
+		} catch (final SecurityException inaccessible) {
+
+			return install(timeout, whitelisted, null); // Call without caller
+		}
+	}
+
+	/**
+	 * Installs Dynagent, waiting for it no longer than the specified timeout, and whitelists the caller if it's
+	 * installed in time.
+	 *
+	 * @param timeout How long to wait for the installation.
+	 * @return The same report as {@link #install(Duration, Class[])} returns.
+	 * @throws NullPointerException If the timeout is null.
+	 * @throws IllegalCallerException If the caller can't be found.
+	 */
+	@jdk.internal.reflect.CallerSensitive()
+	@jdk.internal.vm.annotation.ForceInline()
+	public static InstallReport install(final Duration timeout) throws NullPointerException, IllegalStateException, IllegalCallerException {
+
+		// Call to internal implementation:
+		try {
+
+			return install(timeout, new Class<?>[0], getInstance(RETAIN_CLASS_REFERENCE).getCallerClass()); // Call with caller
+
+		} catch (final SecurityException inaccessible) {
+
+			return install(timeout, new Class<?>[0], null); // Call without caller
+		}
+	}
+
+	/**
+	 * Installs Dynagent without blocking, and whitelists the caller and the specified classes once it's installed.
+	 *
+	 * <p>
+	 *     Concurrent callers join the same installation. If Dynagent is already installed, nothing is installed
+	 *     again, and a late caller isn't whitelisted (only an installing caller is). A late call isn't an error
+	 *     (it doesn't throw {@code IllegalStateException}); its result just tells if the caller can use Dynagent.
+	 * </p>
+	 *
+	 * @param whitelisted Classes to be whitelisted along with the caller.
+	 * @return A future of the installed {@code Instrumentation}, which is completed with null if the installation
+	 *         failed, or if Dynagent was already installed and the caller isn't whitelisted.
+	 * @throws NullPointerException If the whitelist (or any class of it) is null.
+	 * @throws IllegalCallerException If the caller can't be found.
+	 */
+	@jdk.internal.reflect.CallerSensitive()
+	@jdk.internal.vm.annotation.ForceInline()
+	public static CompletableFuture<Instrumentation> installAsync(final Class<?>[] whitelisted) throws NullPointerException, IllegalStateException, IllegalCallerException {
+
+		// Call to internal implementation:
+		try {
+
+			return installAsync(whitelisted, getInstance(RETAIN_CLASS_REFERENCE).getCallerClass()); // Call with caller
+
+		} catch (final SecurityException inaccessible) {
+
+			return installAsync(whitelisted, null); // Call without caller
+		}
+	}
+
+	/**
+	 * Installs Dynagent without blocking, and whitelists the caller once it's installed.
+	 *
+	 * @return The same future as {@link #installAsync(Class[])} returns.
+	 * @throws IllegalCallerException If the caller can't be found.
+	 */
+	@jdk.internal.reflect.CallerSensitive()
+	@jdk.internal.vm.annotation.ForceInline()
+	public static CompletableFuture<Instrumentation> installAsync() throws IllegalStateException, IllegalCallerException {
+
+		// Call to internal implementation:
+		try {
+
+			return installAsync(new Class<?>[0], getInstance(RETAIN_CLASS_REFERENCE).getCallerClass()); // Call with caller
+
+		} catch (final SecurityException inaccessible) {
+
+			return installAsync(new Class<?>[0], null); // Call without caller
+		}
+	}
+
+	public static boolean canInstall() {
+
+		return DynagentInstaller.canInstall(); // Call to internal API
+	}
+
 	public static boolean isInstalled() {
 
 		return DynagentInstaller.isInstalled(); // Call to internal API
 	}
 
+	public static InstallMethod getInstallMethod() {
+
+		final String method = DynagentInstaller.getMethod(); // Call to internal API
+
+		return method == null ? null : InstallMethod.valueOf(method); // Null if Dynagent isn't installed yet
+	}
+
+	public static InstallReport getInstallReport() {
+
+		final InstallRecorder recorder = InstallRecorder.getLast(); // Call to internal API
+
+		if (recorder == null || recorder.getReport() == null) {
+
+			// Null if Dynagent isn't installed yet (or if it's still being installed):
+			return DynagentImpl.isLoaded() && DynagentImpl.isStartup() ? new InstallReport(InstallOutcome.INSTALLED, InstallMethod.STARTUP, 0L, null, null, null) : null;
+		}
+
+		return recorder.getReport();
+	}
+
 	@jdk.internal.reflect.CallerSensitive()
 	@jdk.internal.vm.annotation.ForceInline()
 	public static Instrumentation getAgent() throws IllegalStateException, IllegalCallerException {
@@ -105,6 +332,21 @@ public final class Dynagent {
 		}
 	}
 
+	@jdk.internal.reflect.CallerSensitive()
+	@jdk.internal.vm.annotation.ForceInline()
+	public static DynagentHandle getHandle() throws IllegalStateException, IllegalCallerException {
+
+		// Call to internal implementation:
+		try {
+
+			return getHandle(getInstance(RETAIN_CLASS_REFERENCE).getCallerClass()); // Call with caller
+
+		} catch (final SecurityException inaccessible) {
+
+			return getHandle(null); // Call without caller
+		}
+	}
+
 	@jdk.internal.reflect.CallerSensitive()
 	@jdk.internal.vm.annotation.ForceInline()
 	public static long getObjectSize(final Object instance) throws IllegalStateException, IllegalCallerException, NullPointerException {
@@ -120,6 +362,36 @@ public final class Dynagent {
 		}
 	}
 
+	@jdk.internal.reflect.CallerSensitive()
+	@jdk.internal.vm.annotation.ForceInline()
+	public static long getDeepObjectSize(final Object instance) throws IllegalStateException, IllegalCallerException, NullPointerException {
+
+		// Call to internal implementation:
+		try {
+
+			return getDeepObjectSize(instance, SizeOptions.defaults(), getInstance(RETAIN_CLASS_REFERENCE).getCallerClass()); // Call with caller
+
+		} catch (final SecurityException inaccessible) {
+
+			return getDeepObjectSize(instance, SizeOptions.defaults(), null); // Call without caller
+		}
+	}
+
+	@jdk.internal.reflect.CallerSensitive()
+	@jdk.internal.vm.annotation.ForceInline()
+	public static long getDeepObjectSize(final Object instance, final SizeOptions options) throws IllegalStateException, IllegalCallerException, NullPointerException {
+
+		// Call to internal implementation:
+		try {
+
+			return getDeepObjectSize(instance, options, getInstance(RETAIN_CLASS_REFERENCE).getCallerClass()); // Call with caller
+
+		} catch (final SecurityException inaccessible) {
+
+			return getDeepObjectSize(instance, options, null); // Call without caller
+		}
+	}
+
 	@jdk.internal.reflect.CallerSensitive()
 	@jdk.internal.vm.annotation.ForceInline()
 	public static boolean isModifiableModule(final Module module) throws IllegalStateException, IllegalCallerException, NullPointerException {
@@ -383,23 +655,39 @@ public final class Dynagent {
 	@jdk.internal.reflect.CallerSensitiveAdapter()
 	private static boolean install(final Class<?>[] whitelisted, final Class<?> caller) throws NullPointerException, IllegalStateException, IllegalCallerException {
 
+		return install(whitelisted, new Module[0], new String[0], caller); // Nothing to whitelist except classes
+	}
+
+	@jdk.internal.reflect.CallerSensitiveAdapter()
+	private static boolean install(final Class<?>[] classes, final Module[] modules, final String[] packages, final Class<?> caller) throws NullPointerException, IllegalArgumentException, IllegalStateException, IllegalCallerException {
+
 		// Some checks:
-		requireNonNull(whitelisted); // Require non-null whitelist
 
-		final boolean filled = whitelisted.length > 0; // If there's any class to be whitelisted
+		// Require non-null whitelists:
+		requireNonNull(classes);
+		requireNonNull(modules);
+		requireNonNull(packages);
 
-		if (filled) { // If there's any class to be whitelisted...
+		// Check every class, module and package for nullability:
+		for (final Class<?> aClass : classes) {
 
-			// ...
+			requireNonNull(aClass);
+		}
 
-			// Check every class for nullability:
-			for (final Class<?> aClass : whitelisted) {
+		for (final Module module : modules) {
 
-				requireNonNull(aClass);
-			}
+			requireNonNull(module);
 		}
 
-		requireNotInstalled(); // Require not installed
+		for (final String aPackage : packages) {
+
+			requireNonNull(aPackage);
+
+			if (aPackage.isEmpty()) {
+
+				throw new IllegalArgumentException("An empty package name would whitelist the whole module"); // Checked before anything is installed
+			}
+		}
 
 		if (caller == null) {
 
@@ -408,36 +696,51 @@ public final class Dynagent {
 			throw new IllegalCallerException(); // Require a valid caller
 		}
 
-		// Install Dynagent:
-		synchronized (WHITELIST) {
+		if (isInstalled()) {
 
-			if (install(caller)) { // If internal installation succeed...
+			return WHITELIST.contains(caller); // A late caller returns right away (it isn't whitelisted, because it didn't install Dynagent)
+		}
 
-				if (filled) { // If there's any class to be whitelisted...
+		// Install Dynagent (concurrent callers join the same installation, and no lock is held while waiting):
+		if (!DynagentInstaller.install()) {
 
-					try {
+			// ...
 
-						WHITELIST.addAll(of(whitelisted)); // Whitelist all the specified classes
-						return true; // If installation is successfully finished
+			return false; // If installation is failed
+		}
 
-					} catch (final UnsupportedOperationException | IllegalArgumentException failed) {
+		try {
 
-						return false; // If installation is failed
-					}
-				}
+			WHITELIST.add(caller);
+			WHITELIST.addAll(of(classes)); // Whitelist all the specified classes
+			WHITELIST.addModules(List.of(modules)); // Whitelist all classes of the specified modules
+			WHITELIST.addPackages(caller.getModule(), List.of(packages)); // Packages are only whitelisted within the caller's module
+			return true; // If installation is successfully finished
 
-				return true; // If there's nothing to whitelist - a successful finish
-			}
+		} catch (final UnsupportedOperationException | IllegalArgumentException failed) {
 
-			return false; // If installation failed
+			return false; // If installation is failed
 		}
 	}
 
 	@jdk.internal.reflect.CallerSensitiveAdapter()
 	private static boolean install(final Class<?> caller) throws IllegalStateException, IllegalCallerException {
 
+		return install(new Class<?>[0], caller); // Nothing to whitelist except the caller
+	}
+
+	@jdk.internal.reflect.CallerSensitiveAdapter()
+	private static InstallReport install(final Duration timeout, final Class<?>[] whitelisted, final Class<?> caller) throws NullPointerException, IllegalStateException, IllegalCallerException {
+
 		// Some checks:
-		requireNotInstalled(); // Require not installed
+		requireNonNull(timeout); // Require non-null timeout
+		requireNonNull(whitelisted); // Require non-null whitelist
+
+		// Check every class for nullability:
+		for (final Class<?> aClass : whitelisted) {
+
+			requireNonNull(aClass);
+		}
 
 		if (caller == null) {
 
@@ -446,26 +749,65 @@ public final class Dynagent {
 			throw new IllegalCallerException(); // Require a valid caller
 		}
 
-		// Install Dynagent:
-		synchronized (WHITELIST) {
+		if (isInstalled()) {
 
-			if (!DynagentInstaller.install()) {
+			// A late caller returns right away (it isn't whitelisted, because it didn't install Dynagent):
+			return WHITELIST.contains(caller) ? getInstallReport() : new InstallReport(InstallOutcome.FAILED, null, 0L, null, "Dynagent is already installed, and the caller isn't whitelisted", null);
+		}
 
-				// ...
+		final long start = System.nanoTime();
 
-				return false; // If installation is failed
-			}
+		// Install Dynagent (a too long installation is cancelled, and its temporary installer is killed, unless somebody else still waits for it):
+		if (DynagentInstaller.install(timeout.isNegative() ? 0L : NANOSECONDS.convert(timeout), NANOSECONDS)) {
 
-			try {
+			WHITELIST.add(caller);
+			WHITELIST.addAll(Arrays.asList(whitelisted)); // Whitelist all the specified classes
+		}
 
-				WHITELIST.add(caller);
-				return true; // If installation is successfully finished
+		final InstallReport report = getInstallReport(); // Either `INSTALLED`, `FAILED` or `TIMED_OUT`
 
-			} catch (final UnsupportedOperationException | IllegalArgumentException failed) {
+		// Null if the installation is still running for other callers (only this caller stopped waiting for it):
+		return report != null ? report : new InstallReport(InstallOutcome.TIMED_OUT, null, System.nanoTime() - start, null, "The installation didn't finish in time (it's still running for other callers)", null);
+	}
 
-				return false; // If installation is failed
-			}
+	@jdk.internal.reflect.CallerSensitiveAdapter()
+	private static CompletableFuture<Instrumentation> installAsync(final Class<?>[] whitelisted, final Class<?> caller) throws NullPointerException, IllegalStateException, IllegalCallerException {
+
+		// Some checks:
+		requireNonNull(whitelisted); // Require non-null whitelist
+
+		// Check every class for nullability:
+		for (final Class<?> aClass : whitelisted) {
+
+			requireNonNull(aClass);
+		}
+
+		if (caller == null) {
+
+			// ...
+
+			throw new IllegalCallerException(); // Require a valid caller
+		}
+
+		if (isInstalled()) {
+
+			// A late caller gets an `Instrumentation` right away only if it was whitelisted before:
+			return CompletableFuture.completedFuture(WHITELIST.contains(caller) ? DynagentImpl.getAgent() : null);
 		}
+
+		// Install Dynagent (concurrent callers join the same installation, and no lock is held while waiting):
+		return DynagentInstaller.installAsync().thenApply((installed) -> {
+
+			if (!installed) {
+
+				return null; // If installation is failed
+			}
+
+			WHITELIST.add(caller);
+			WHITELIST.addAll(Arrays.asList(whitelisted)); // Whitelist all the specified classes
+
+			return DynagentImpl.getAgent(); // Return an `Instrumentation` to the whitelisted caller
+		});
 	}
 
 	@jdk.internal.reflect.CallerSensitiveAdapter()
@@ -481,16 +823,39 @@ public final class Dynagent {
 			throw new IllegalCallerException(); // Require a valid caller
 		}
 
-		// Do a security check and return an `Instrumentation`:
-		synchronized (WHITELIST) {
+		// Do a security check (a single lock-free read for an already checked caller) and return an `Instrumentation`:
+		if (WHITELIST.contains(caller)) {
 
-			if (WHITELIST.contains(caller)) {
+			return DynagentImpl.getAgent(); // Return an `Instrumentation` if the caller is whitelisted
+		}
 
-				return DynagentImpl.getAgent(); // Return an `Instrumentation` if the caller is whitelisted
-			}
+		throw new IllegalCallerException(); // Require a whitelisted caller
+	}
+
+	@jdk.internal.reflect.CallerSensitiveAdapter()
+	private static DynagentHandle getHandle(final Class<?> caller) throws IllegalStateException, IllegalCallerException {
+
+		// Some checks:
+		requireInstalled(); // Require installation
+
+		if (caller == null) {
+
+			// ...
+
+			throw new IllegalCallerException(); // Require a valid caller
+		}
+
+		// Try access an `Instrumentation` (it's the only access check a handle ever needs):
+		final Instrumentation agent = getAgent(caller);
+
+		if (agent == null) {
+
+			// ...
 
 			throw new IllegalCallerException(); // Require a whitelisted caller
 		}
+
+		return new DynagentHandle(agent); // Its methods don't check the caller anymore
 	}
 
 	@jdk.internal.reflect.CallerSensitiveAdapter()
@@ -523,6 +888,38 @@ public final class Dynagent {
 		}
 	}
 
+	@jdk.internal.reflect.CallerSensitiveAdapter()
+	private static long getDeepObjectSize(final Object instance, final SizeOptions options, final Class<?> caller) throws IllegalStateException, IllegalCallerException, NullPointerException {
+
+		// Some checks:
+		requireInstalled(); // Require installation
+		requireNonNull(instance);
+		requireNonNull(options);
+
+		if (caller == null) {
+
+			// ...
+
+			throw new IllegalCallerException(); // Require a valid caller
+		}
+
+		// Find the in-memory size of everything reachable from an object:
+		{
+
+			// Try access an `Instrumentation`:
+			final Instrumentation agent = getAgent(caller);
+
+			if (agent == null) {
+
+				// ...
+
+				throw new IllegalCallerException(); // Require a whitelisted caller
+			}
+
+			return GraphWalker.getDeepSize(agent, instance, options); // Walk the object graph
+		}
+	}
+
 	@jdk.internal.reflect.CallerSensitiveAdapter()
 	private static boolean isModifiableModule(final Module module, final Class<?> caller) throws IllegalStateException, IllegalCallerException, NullPointerException {
 
@@ -1059,12 +1456,4 @@ public final class Dynagent {
 			throw new IllegalStateException(); // Require installation
 		}
 	}
-
-	private static void requireNotInstalled() throws IllegalStateException {
-
-		if (isInstalled()) {
-
-			throw new IllegalStateException(); // Require not installed
-		}
-	}
 }
@@ -0,0 +1,186 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.agent;
+
+import com.github.justhm228.dynagent.internal.memory.*;
+import java.io.*;
+import java.lang.instrument.*;
+import java.nio.*;
+import java.util.*;
+import static java.util.Objects.*;
+import java.util.jar.*;
+
+/**
+ * A capability to use Dynagent, which is granted to a whitelisted class once (see {@link Dynagent#getHandle()}).
+ *
+ * <p>
+ *     Every static method of {@link Dynagent} walks the stack to find its caller and checks the whitelist before
+ *     doing anything. Methods of a handle do neither: a handle can only be obtained by a whitelisted caller, so
+ *     holding it is already a proof of access. That's why it must be treated exactly like the
+ *     {@link Instrumentation} itself - don't pass it to code which shouldn't be able to use Dynagent.
+ * </p>
+ *
+ * @see Dynagent#getHandle()
+ */
+public final class DynagentHandle {
+
+	private final Instrumentation agent;
+
+	DynagentHandle(final Instrumentation agent) {
+
+		// Only `Dynagent` can create a handle (and nobody can add a class to this package of a named module):
+
+		super();
+		this.agent = requireNonNull(agent);
+	}
+
+	public Instrumentation getAgent() {
+
+		return agent;
+	}
+
+	public long getObjectSize(final Object instance) throws NullPointerException {
+
+		return agent.getObjectSize(instance);
+	}
+
+	public long getDeepObjectSize(final Object instance) throws NullPointerException {
+
+		return getDeepObjectSize(instance, SizeOptions.defaults());
+	}
+
+	public long getDeepObjectSize(final Object instance, final SizeOptions options) throws NullPointerException {
+
+		return GraphWalker.getDeepSize(agent, instance, options);
+	}
+
+	public boolean isModifiableModule(final Module module) throws NullPointerException {
+
+		return agent.isModifiableModule(module);
+	}
+
+	public void redefineModule(final Module module, final Set<Module> reads, final Map<String, Set<Module>> exports, final Map<String, Set<Module>> opens, final Set<Class<?>> uses, final Map<Class<?>, List<Class<?>>> provides) throws IllegalArgumentException, UnmodifiableModuleException {
+
+		agent.redefineModule(module, reads, exports, opens, uses, provides);
+	}
+
+	public void appendToBootstrapClassLoaderSearch(final JarFile jar) throws NullPointerException {
+
+		agent.appendToBootstrapClassLoaderSearch(jar);
+	}
+
+	public void appendToSystemClassLoaderSearch(final JarFile jar) throws NullPointerException {
+
+		agent.appendToSystemClassLoaderSearch(jar);
+	}
+
+	public Class<?>[] getAllLoadedClasses() {
+
+		return agent.getAllLoadedClasses();
+	}
+
+	public Class<?>[] getInitiatedClasses(final ClassLoader classloader) {
+
+		return agent.getInitiatedClasses(classloader);
+	}
+
+	public boolean isModifiableClass(final Class<?> aClass) {
+
+		return agent.isModifiableClass(aClass);
+	}
+
+	public boolean isRetransformClassesSupported() {
+
+		return agent.isRetransformClassesSupported();
+	}
+
+	public boolean isRedefineClassesSupported() {
+
+		return agent.isRedefineClassesSupported();
+	}
+
+	public boolean isNativeMethodPrefixSupported() {
+
+		return agent.isNativeMethodPrefixSupported();
+	}
+
+	public void redefineClasses(final ClassDefinition[] classes) throws NullPointerException, ClassNotFoundException, UnmodifiableClassException {
+
+		// Check every class for nullability:
+		for (final ClassDefinition aClass : requireNonNull(classes)) {
+
+			requireNonNull(aClass);
+		}
+
+		if (classes.length > 0) { // If there's any classes to be redefined...
+
+			agent.redefineClasses(classes); // Redefine the classes directly
+		}
+	}
+
+	public void redefineClasses(final ClassDefinition aClass) throws NullPointerException, ClassNotFoundException, UnmodifiableClassException {
+
+		agent.redefineClasses(requireNonNull(aClass)); // Redefine the class directly
+	}
+
+	public void redefineClasses(final Class<?> aClass, final File bytecode) throws NullPointerException, IOException, ClassNotFoundException, UnmodifiableClassException {
+
+		requireNonNull(aClass);
+
+		// Read all data from the file and call with it:
+		try (final FileInputStream in = new FileInputStream(requireNonNull(bytecode))) {
+
+			redefineClasses(aClass, in);
+		}
+	}
+
+	public void redefineClasses(final Class<?> aClass, final InputStream bytecode) throws NullPointerException, IOException, ClassNotFoundException, UnmodifiableClassException {
+
+		requireNonNull(aClass);
+		redefineClasses(aClass, bytecode.readAllBytes()); // Read all data and call with it
+	}
+
+	public void redefineClasses(final Class<?> aClass, final ByteBuffer bytecode) throws NullPointerException, ClassNotFoundException, UnmodifiableClassException {
+
+		requireNonNull(aClass);
+
+		final byte[] bytes = new byte[bytecode.remaining()]; // A byte array of the data to be used
+
+		bytecode.get(bytes); // Write the remaining data to the byte array
+		redefineClasses(aClass, bytes); // Call with "clipped" data
+	}
+
+	public void redefineClasses(final Class<?> aClass, final byte[] bytecode, final int offset, final int length) throws NullPointerException, IndexOutOfBoundsException, ClassNotFoundException, UnmodifiableClassException {
+
+		requireNonNull(aClass);
+		checkFromIndexSize(offset, length, bytecode.length);
+		redefineClasses(aClass, Arrays.copyOfRange(bytecode, offset, offset + length)); // Call with clipped data
+	}
+
+	public void redefineClasses(final Class<?> aClass, final byte[] bytecode) throws NullPointerException, ClassNotFoundException, UnmodifiableClassException {
+
+		agent.redefineClasses(new ClassDefinition(requireNonNull(aClass), requireNonNull(bytecode))); // Wrap a valid byte array to `ClassDefinition`
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.agent;
+
+/**
+ * Describes the way Dynagent was installed to the current VM.
+ */
+public enum InstallMethod {
+
+	/**
+	 * Dynagent was installed on JVM startup (via the {@code -javaagent} JVM option).
+	 */
+	STARTUP,
+
+	/**
+	 * Dynagent was attached directly from the current process by speaking the attach protocol of HotSpot on Linux
+	 * (without the Attach API), or by the equivalent {@code JVMTI.agent_load} diagnostic command.
+	 */
+	DIRECT_ATTACH,
+
+	/**
+	 * Dynagent was attached directly from the current process (via the Attach API). This is only possible
+	 * if the current VM allows to attach to itself (via the {@code -Djdk.attach.allowAttachSelf=true} JVM option).
+	 */
+	SELF_ATTACH,
+
+	/**
+	 * Dynagent was attached by an attach daemon (a long-lived {@code java} process shared by JVMs of the same user,
+	 * which is launched via {@code java -jar dynagent.jar --daemon}).
+	 */
+	DAEMON,
+
+	/**
+	 * Dynagent was attached from a temporary {@code java} process launched by the current process.
+	 */
+	PROCESS
+}
@@ -0,0 +1,55 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.agent;
+
+import java.util.*;
+
+/**
+ * Describes the last installation of Dynagent: how it ended, how long it took and where that time was spent.
+ *
+ * <p>
+ *     Phases are named after the steps of the installation (like {@code findPid}, {@code buildAgent},
+ *     {@code directAttach}, {@code spawn} or {@code cleanup}) and they're listed in the order they were first
+ *     started. A phase which was started several times (e.g. {@code buildAgent} for several ways to attach) is
+ *     reported once, with the total time of all its runs. The same phases are also recorded as JFR events
+ *     ({@code dynagent.InstallPhase} and {@code dynagent.Install}).
+ * </p>
+ *
+ * @param outcome How the installation ended.
+ * @param method The way Dynagent was installed, or null if it wasn't installed.
+ * @param durationNanos The duration of the whole installation (in nanoseconds).
+ * @param phaseNanos Durations of the phases of the installation (in nanoseconds).
+ * @param cause Why the installation failed (or why the last tried way to attach failed), or null if nothing failed.
+ * @param output The output (both stdout and stderr) of a temporary installer process, truncated to a few kilobytes,
+ *               or null if no installer was launched (or if its output was discarded).
+ */
+public record InstallReport(InstallOutcome outcome, InstallMethod method, long durationNanos, Map<String, Long> phaseNanos, String cause, String output) {
+
+	public InstallReport {
+
+		Objects.requireNonNull(outcome);
+		phaseNanos = phaseNanos == null ? Map.of() : Collections.unmodifiableMap(new LinkedHashMap<>(phaseNanos));
+	}
+}
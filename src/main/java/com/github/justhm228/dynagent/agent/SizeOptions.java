@@ -0,0 +1,91 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.agent;
+
+import java.util.*;
+
+/**
+ * Tells {@link Dynagent#getDeepObjectSize(Object, SizeOptions)} where to stop walking an object graph.
+ *
+ * <p>
+ *     Instances of stop classes (and of their subclasses) and stop objects themselves are neither counted nor
+ *     walked into. Shared objects are objects of the JVM itself, which are referenced from everywhere and never
+ *     belong to a single graph: classes, class loaders, modules, threads, enum constants, cached boxes (like
+ *     {@code Integer.valueOf(0)}) and empty immutable collections of the JDK. They are skipped by default.
+ * </p>
+ *
+ * <p>
+ *     A parallel walk splits the graph (and large arrays, e.g. backing arrays of large collections) into tasks of the
+ *     common {@link java.util.concurrent.ForkJoinPool}. It's meant for large graphs (millions of objects) on several
+ *     cores; on a single core it's a bit slower than a sequential walk (the tasks and the shared set cost more than
+ *     they save), so it's disabled by default.
+ * </p>
+ *
+ * @param stopClasses Classes whose instances are neither counted nor walked into.
+ * @param stopObjects Objects which are neither counted nor walked into (compared by identity).
+ * @param skipShared Whether shared objects of the JVM are skipped.
+ * @param parallel Whether the graph is walked by several threads.
+ */
+public record SizeOptions(List<Class<?>> stopClasses, List<Object> stopObjects, boolean skipShared, boolean parallel) {
+
+	private static final SizeOptions DEFAULTS = new SizeOptions(List.of(), List.of(), true, false);
+
+	public SizeOptions {
+
+		stopClasses = List.copyOf(stopClasses); // Also checks every class for nullability
+		stopObjects = List.copyOf(stopObjects); // Also checks every object for nullability
+	}
+
+	public static SizeOptions defaults() {
+
+		return DEFAULTS;
+	}
+
+	public SizeOptions withStopClasses(final Class<?>... stopClasses) throws NullPointerException {
+
+		final List<Class<?>> updated = new ArrayList<>(this.stopClasses);
+
+		updated.addAll(Arrays.asList(stopClasses));
+		return new SizeOptions(updated, stopObjects, skipShared, parallel);
+	}
+
+	public SizeOptions withStopObjects(final Object... stopObjects) throws NullPointerException {
+
+		final List<Object> updated = new ArrayList<>(this.stopObjects);
+
+		updated.addAll(Arrays.asList(stopObjects));
+		return new SizeOptions(stopClasses, updated, skipShared, parallel);
+	}
+
+	public SizeOptions withSkipShared(final boolean skipShared) {
+
+		return new SizeOptions(stopClasses, stopObjects, skipShared, parallel);
+	}
+
+	public SizeOptions withParallel(final boolean parallel) {
+
+		return new SizeOptions(stopClasses, stopObjects, skipShared, parallel);
+	}
+}
@@ -0,0 +1,391 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.internal.agent;
+
+import com.sun.management.*;
+import java.io.*;
+import java.lang.reflect.*;
+import static java.lang.Integer.parseInt;
+import static java.lang.management.ManagementFactory.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.nio.file.*;
+import javax.management.*;
+
+/**
+ * A client of the attach protocol of HotSpot on Linux, which doesn't need the {@code jdk.attach} module.
+ *
+ * <p>
+ *     HotSpot on Linux always creates its attach socket ({@code .java_pid<pid>}) in {@code /tmp}, regardless of
+ *     {@code java.io.tmpdir} of the target VM (so a VM whose {@code /tmp} is unusable can't be attached to this
+ *     way). If the target VM runs in another mount or PID namespace (e.g. in a container), its {@code /tmp} and its
+ *     own PID are found through {@code /proc/<pid>}, just like the Attach API does.
+ * </p>
+ *
+ * <p>
+ *     The socket only exists once the attach mechanism of the target VM is started (by an earlier attach, or by
+ *     {@code -XX:+StartAttachListener}). Otherwise it's started with the same handshake as the Attach API uses: a
+ *     {@code .attach_pid<pid>} trigger file next to the socket and a {@code SIGQUIT} to the target VM. Java has no
+ *     public way to send a signal, so it's sent with the native method of the Attach API itself
+ *     ({@code sun.tools.attach.VirtualMachineImpl.sendQuitTo}), which is only reachable if its package is opened to
+ *     Dynagent (e.g. {@code --add-opens jdk.attach/sun.tools.attach=ALL-UNNAMED}). If it isn't, the current VM is
+ *     asked to load the agent via the {@code JVMTI.agent_load} diagnostic command instead (it loads the whole
+ *     management API, so it's only a fallback), and another VM without a socket can't be attached to.
+ * </p>
+ */
+public final class DynagentAttacher {
+
+	// HotSpot always uses this directory on Linux (regardless of `java.io.tmpdir`):
+	private static final String TMPDIR = "/tmp";
+
+	// The same timeout as in the Attach API (by default):
+	private static final long TIMEOUT = 10_000L; // In milliseconds
+
+	private static final String PROTOCOL_VERSION = "1"; // The only attach protocol version supported by HotSpot
+
+	private DynagentAttacher() throws UnsupportedOperationException {
+
+		super();
+		throw new UnsupportedOperationException("An instance of this type (" + getClass().getTypeName() + ") can't be instantiated with a constructor!");
+	}
+
+	/**
+	 * Checks if the attach protocol of HotSpot on Linux can be used to attach to the current VM.
+	 *
+	 * @return true if the current VM is HotSpot on Linux with the attach mechanism enabled; otherwise - false.
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public static boolean isSupported() {
+
+		try {
+
+			final String os = System.getProperty("os.name", "");
+
+			final String vm = System.getProperty("java.vm.name", "");
+
+			if (!os.startsWith("Linux") || !(vm.contains("HotSpot") || vm.contains("OpenJDK"))) {
+
+				return false; // The protocol below is specific to HotSpot on Linux
+			}
+
+			// Respect the disabled attach mechanism (but only ask the VM if the command line could disable it):
+			return DynagentInstaller.isDefault("DisableAttachMechanism") || !isEnabled("DisableAttachMechanism");
+
+		} catch (final SecurityException | IllegalArgumentException | LinkageError inaccessible) {
+
+			return false; // If something went wrong
+		}
+	}
+
+	/**
+	 * Loads the specified Java agent to the VM with the specified PID, speaking the attach protocol of HotSpot on Linux.
+	 *
+	 * <p>
+	 *     The attach is done from a helper thread, so the calling thread will only wait for it until a timeout.
+	 *     Unlike the Attach API, this works even if the specified PID is a PID of the current process. The attach
+	 *     mechanism of another VM must be already started, unless {@code SIGQUIT} can be sent (see above).
+	 * </p>
+	 *
+	 * @param pid A PID of the VM to attach to.
+	 * @param agent A path to a jar file of the Java agent.
+	 * @return true if the Java agent is successfully loaded; otherwise - false.
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public static boolean attach(final String pid, final String agent) {
+
+		if (pid == null || agent == null) {
+
+			return false;
+		}
+
+		final boolean[] loaded = { false }; // The result of the helper thread
+
+		final Thread helper = new Thread(() -> {
+
+			try {
+
+				load(pid, agent);
+				loaded[0] = true;
+
+			} catch (final IOException | SecurityException | IllegalArgumentException ignored) {
+
+				// If something went wrong
+			}
+
+		}, "Dynagent Attacher");
+
+		helper.setDaemon(true); // Don't prevent the JVM from exiting
+
+		try {
+
+			helper.start();
+			helper.join(TIMEOUT * 2);
+
+		} catch (final InterruptedException interrupted) {
+
+			Thread.currentThread().interrupt(); // Restore the interrupt status
+
+		} finally {
+
+			helper.interrupt(); // Stop waiting for the target VM (if it's still waiting)
+		}
+
+		return !helper.isAlive() && loaded[0]; // `join()` guarantees the visibility of `loaded[0]`
+	}
+
+	private static void load(final String pid, final String agent) throws IOException {
+
+		final Path socket = findTmpDir(pid).resolve(".java_pid" + findNamespacePid(pid));
+
+		if (!Files.exists(socket)) { // The attach mechanism of the target VM isn't started yet
+
+			final Method quit = findQuit();
+
+			if (quit != null) {
+
+				start(pid, socket, quit); // Start it with a handshake
+
+			} else if (pid.equals(String.valueOf(ProcessHandle.current().pid()))) {
+
+				command(agent); // Ask the current VM to do the same thing via a diagnostic command
+				return;
+
+			} else {
+
+				throw new IOException("The target VM hasn't started its attach mechanism (and SIGQUIT can't be sent to start it)");
+			}
+		}
+
+		try (final SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+
+			channel.connect(UnixDomainSocketAddress.of(socket));
+
+			// Send the request (the same as `VirtualMachine.loadAgent(agent)`):
+			write(channel, PROTOCOL_VERSION);
+			write(channel, "load");
+			write(channel, "instrument"); // A library which loads Java agents
+			write(channel, "false"); // Not an absolute path to the library
+			write(channel, agent);
+
+			final InputStream in = Channels.newInputStream(channel);
+
+			// Read the response:
+			final String status = readLine(in);
+
+			if (status == null || parseInt(status.trim()) != 0) {
+
+				throw new IOException("The target VM failed to load an agent library: " + readLine(in));
+			}
+
+			check(readLine(in)); // The return code of the agent library
+		}
+	}
+
+	private static void start(final String pid, final Path socket, final Method quit) throws IOException {
+
+		// The target VM looks for this file when it gets `SIGQUIT` (otherwise it just prints a thread dump):
+		final Path trigger = socket.resolveSibling(".attach_pid" + findNamespacePid(pid));
+
+		boolean created = false;
+
+		try {
+
+			try {
+
+				Files.createFile(trigger);
+				created = true;
+
+			} catch (final FileAlreadyExistsException concurrent) {
+
+				// Another attach is starting it too
+			}
+
+			quit.invoke(null, parseInt(pid)); // A PID as it's seen from here
+
+			// Wait for the socket (the Attach API waits the same way, but with longer delays):
+			final long deadline = System.nanoTime() + TIMEOUT * 1_000_000L;
+
+			for (long delay = 1L; !Files.exists(socket); delay = Math.min(delay * 2L, 100L)) {
+
+				if (System.nanoTime() - deadline > 0L) {
+
+					throw new IOException("The target VM didn't start its attach mechanism");
+				}
+
+				Thread.sleep(delay);
+			}
+
+		} catch (final InterruptedException interrupted) {
+
+			Thread.currentThread().interrupt(); // Restore the interrupt status
+			throw new InterruptedIOException("Interrupted while waiting for the target VM");
+
+		} catch (final IllegalAccessException | InvocationTargetException | NumberFormatException failed) {
+
+			throw new IOException("Can't send SIGQUIT to the target VM", failed instanceof final InvocationTargetException thrown ? thrown.getCause() : failed);
+
+		} finally {
+
+			if (created) {
+
+				Files.deleteIfExists(trigger);
+			}
+		}
+	}
+
+	private static Method findQuit() {
+
+		try {
+
+			// The Attach API is the only part of the JDK which sends `SIGQUIT`, but its package isn't opened by default:
+			final Module attach = ModuleLayer.boot().findModule("jdk.attach").orElse(null);
+
+			if (attach == null || !attach.isOpen("sun.tools.attach", DynagentAttacher.class.getModule())) {
+
+				return null;
+			}
+
+			final Method quit = Class.forName("sun.tools.attach.VirtualMachineImpl").getDeclaredMethod("sendQuitTo", int.class);
+
+			quit.setAccessible(true);
+			return quit;
+
+		} catch (final ClassNotFoundException | NoSuchMethodException | InaccessibleObjectException | SecurityException | LinkageError unavailable) {
+
+			return null; // If it isn't HotSpot on Linux (or something else went wrong)
+		}
+	}
+
+	private static Path findTmpDir(final String pid) {
+
+		// The `/tmp` of the target VM as it's seen from here (it differs if the VM is in another mount namespace):
+		final Path root = Path.of("/proc", pid, "root", TMPDIR);
+
+		return Files.isDirectory(root) ? root : Path.of(TMPDIR);
+	}
+
+	private static String findNamespacePid(final String pid) {
+
+		// The target VM names its socket after its PID in its own PID namespace (the last one of `NSpid`):
+		try {
+
+			for (final String line : Files.readAllLines(Path.of("/proc", pid, "status"))) {
+
+				if (line.startsWith("NSpid:")) {
+
+					final String[] pids = line.substring("NSpid:".length()).trim().split("\\s+");
+
+					return pids[pids.length - 1];
+				}
+			}
+
+		} catch (final IOException | SecurityException | UncheckedIOException unreadable) {
+
+			// Assume the same namespace
+		}
+
+		return pid;
+	}
+
+	private static void command(final String agent) throws IOException {
+
+		try {
+
+			// `JVMTI.agent_load` loads a jar file via the same "instrument" library (but it needs the JMX):
+			final Object result = getPlatformMBeanServer().invoke(new ObjectName("com.sun.management:type=DiagnosticCommand"), "jvmtiAgentLoad", new Object[] { new String[] { agent } }, new String[] { String[].class.getName() });
+
+			check(result == null ? null : result.toString().strip());
+
+		} catch (final JMException | SecurityException failed) {
+
+			throw new IOException(failed);
+		}
+	}
+
+	private static void check(String result) throws IOException {
+
+		if (result == null || result.isEmpty()) {
+
+			throw new IOException("The target VM did not respond");
+		}
+
+		if (result.startsWith("return code: ")) { // Newer VMs prefix it
+
+			result = result.substring("return code: ".length());
+		}
+
+		try {
+
+			if (parseInt(result.trim()) != 0) {
+
+				throw new IOException("The target VM failed to initialize the agent (" + result + ")");
+			}
+
+		} catch (final NumberFormatException unexpected) {
+
+			throw new IOException(result); // An error message instead of a return code
+		}
+	}
+
+	private static void write(final WritableByteChannel channel, final String data) throws IOException {
+
+		final byte[] bytes = data.getBytes(UTF_8);
+
+		final ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 1);
+
+		buffer.put(bytes).put((byte) 0).flip(); // Every string is null-terminated
+
+		while (buffer.hasRemaining()) {
+
+			channel.write(buffer);
+		}
+	}
+
+	private static String readLine(final InputStream in) throws IOException {
+
+		final ByteArrayOutputStream line = new ByteArrayOutputStream(16);
+
+		for (int next = in.read(); next != '\n'; next = in.read()) {
+
+			if (next == -1) {
+
+				return line.size() == 0 ? null : line.toString(UTF_8); // End of the stream
+			}
+
+			line.write(next);
+		}
+
+		return line.toString(UTF_8);
+	}
+
+	private static boolean isEnabled(final String option) {
+
+		final HotSpotDiagnosticMXBean diagnostic = getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+
+		return diagnostic != null && Boolean.parseBoolean(diagnostic.getVMOption(option).getValue());
+	}
+}
@@ -29,6 +29,7 @@ import static java.lang.Class.*;
 import static java.lang.StackWalker.*;
 import static java.lang.StackWalker.Option.*;
 import java.lang.instrument.*;
+import java.util.concurrent.locks.*;
 
 public final class DynagentImpl {
 
@@ -38,7 +39,7 @@ public final class DynagentImpl {
 	private static volatile boolean startup = false; // If Dynagent is installed at startup (via a JVM option)
 
 	// Multithreading only:
-	private static final Object LOCK = new Object(); // An "installation lock" required to be thread-safe
+	private static final Lock LOCK = new ReentrantLock(); // An "installation lock" (only writers take it, and it never pins a virtual thread)
 
 	private DynagentImpl() throws UnsupportedOperationException {
 
@@ -61,13 +62,10 @@ public final class DynagentImpl {
 	 */
 	public static boolean isLoaded() {
 
-		// Check for load state:
-		synchronized (LOCK) {
+		// Check for load state (`agent` is published once, so a single `volatile` read is enough):
+		final Instrumentation agent = DynagentImpl.agent; // <- Efficient use of `volatile` fields
 
-			final Instrumentation agent = DynagentImpl.agent; // <- Efficient use of `volatile` fields
-
-			return agent != null; // <- If Dynagent is installed, then `agent` will be non-null
-		}
+		return agent != null; // <- If Dynagent is installed, then `agent` will be non-null
 	}
 
 	/**
@@ -121,11 +119,8 @@ public final class DynagentImpl {
 	 */
 	public static boolean isStartup() throws IllegalStateException {
 
-		synchronized (LOCK) {
-
-			requireInstalled(); // Require installation of Dynagent (or throw an exception)
-			return startup;
-		}
+		requireInstalled(); // Require installation of Dynagent (or throw an exception)
+		return startup;
 	}
 
 	// --------------------------- Dynamic Installation ---------------------------
@@ -156,7 +151,9 @@ public final class DynagentImpl {
 		// Installation of Dynagent:
 		if (agent != null) { // If we can install Dynagent right now...
 
-			synchronized (LOCK) {
+			LOCK.lock();
+
+			try {
 
 				final Instrumentation installed = DynagentImpl.agent; // <- Efficient use of `volatile` fields
 
@@ -164,6 +161,10 @@ public final class DynagentImpl {
 
 					DynagentImpl.agent = agent; // Install Dynagent
 				}
+
+			} finally {
+
+				LOCK.unlock();
 			}
 		}
 	}
@@ -202,7 +203,9 @@ public final class DynagentImpl {
 
 			if (installed != null) { // <- If Dynagent was successfully installed, then `installed` will be non-null
 
-				synchronized (LOCK) {
+				LOCK.lock();
+
+				try {
 
 					final boolean startup = DynagentImpl.startup; // <- Efficient use of `volatile` fields
 
@@ -210,6 +213,10 @@ public final class DynagentImpl {
 
 						DynagentImpl.startup = true; // Mark Dynagent as installed at JVM startup (via JVM option)
 					}
+
+				} finally {
+
+					LOCK.unlock();
 				}
 			}
 		}
@@ -242,24 +249,18 @@ public final class DynagentImpl {
 			throw new IllegalCallerException(); // The method must have a valid caller to return a valid instance.
 		}
 
-		synchronized (LOCK) {
-
-			final Instrumentation agent = DynagentImpl.agent; // <- Efficient use of `volatile` fields
+		final Instrumentation agent = DynagentImpl.agent; // <- Efficient use of `volatile` fields
 
-			// Just a security check to make sure this internal API was called from the stable API
-			// and not from the user. This should be the last check in the method before the return.
-			return caller == DynagentImpl.class || caller == Dynagent.class ? agent : null;
-		}
+		// Just a security check to make sure this internal API was called from the stable API
+		// and not from the user. This should be the last check in the method before the return.
+		return caller == DynagentImpl.class || caller == Dynagent.class ? agent : null;
 	}
 
 	private static void requireInstalled() throws IllegalStateException {
 
-		synchronized (LOCK) {
-
-			if (!isLoaded()) {
+		if (!isLoaded()) {
 
-				throw new IllegalStateException(); // Require installation (or throw an exception).
-			}
+			throw new IllegalStateException(); // Require installation (or throw an exception).
 		}
 	}
 }
@@ -26,8 +26,8 @@ package com.github.justhm228.dynagent.internal.agent;
 
 import com.github.justhm228.dynagent.base.*;
 import com.github.justhm228.dynagent.internal.file.*;
-import static com.github.justhm228.dynagent.internal.file.FileCleaner.addTarget;
 import static com.github.justhm228.dynagent.internal.file.FileCleaner.clean;
+import com.sun.management.*;
 import com.sun.tools.attach.*;
 import static com.sun.tools.attach.VirtualMachine.*;
 import java.io.*;
@@ -38,18 +38,65 @@ import static java.lang.ProcessHandle.*;
 import static java.lang.StackWalker.*;
 import static java.lang.StackWalker.Option.*;
 import static java.lang.String.valueOf;
+import static java.lang.management.ManagementFactory.*;
 import static java.lang.System.err;
 import static java.lang.System.out;
 import static java.lang.System.exit;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+import static java.util.concurrent.CompletableFuture.*;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import java.util.jar.*;
 import java.util.jar.Attributes.*;
 import static java.util.jar.Attributes.Name.*;
 import java.util.regex.*;
 import static java.util.regex.Pattern.*;
+import jdk.net.*;
 
 public final class DynagentInstaller {
 
+	// Installation data:
+	private static volatile String method = null; // The way Dynagent was dynamically installed
+
+	private static final long DAEMON_TIMEOUT = 10_000L; // How long to wait for a response of an attach daemon (in milliseconds)
+
+	private static final int DAEMON_REQUEST_LIMIT = 8192; // A maximum size of an attach daemon request (in bytes)
+
+	private static final int OUTPUT_LIMIT = 16384; // A maximum size of the kept output of a temporary installer (in bytes)
+
+	private static final long OUTPUT_TIMEOUT = 1_000L; // How long to wait for the rest of the output of an exited installer (in milliseconds)
+
+	private static final long BACKOFF = 1_000L; // How long to return a failure right away after a failed installation (in milliseconds)
+
+	private static final long BACKOFF_LIMIT = 60_000L; // A maximum delay between retries of a failing installation (in milliseconds)
+
+	private static volatile int failures = 0; // How many installations failed in a row (written only when an installation ends)
+
+	private static volatile long retryAt = 0L; // When a failing installation may be retried (in terms of `System.nanoTime()`)
+
+	private static volatile boolean preflighted = false; // Whether VM flags which disable dynamic attach were checked
+
+	private static volatile String blocker = null; // Why Dynagent can't be dynamically installed (null if it can)
+
+	private static final AtomicReference<CompletableFuture<Boolean>> INSTALLATION = new AtomicReference<>(null); // The installation in flight (if any)
+
+	private static final Map<CompletableFuture<Boolean>, Integer> WAITERS = new ConcurrentHashMap<>(2); // How many callers wait for the installation in flight
+
+	private static final Set<Process> INSTALLERS = ConcurrentHashMap.newKeySet(); // Temporary installer processes which are still running
+
+	private static final Set<Thread> HELPERS = ConcurrentHashMap.newKeySet(); // Helper threads which are still installing
+
+	// Note: this class and `DynagentImpl` are the only classes in a temporary jar file, so its public methods
+	// shouldn't have types which can't be found in a plain JDK (or the installer won't even start).
+
 	private DynagentInstaller() throws UnsupportedOperationException {
 
 		super();
@@ -58,6 +105,18 @@ public final class DynagentInstaller {
 
 	public static void main(final String... args) {
 
+		if ((args.length == 1 || args.length == 2) && args[0].equalsIgnoreCase("--daemon")) { // If it's a daemon request...
+
+			exit(serve(args.length == 2 ? args[1] : findDaemon()) ? 0 : 1); // Serve attach requests until killed
+			return;
+		}
+
+		if (args.length >= 3 && args[0].equalsIgnoreCase("--multi")) { // If it's a request to attach to many JVMs...
+
+			exit(attachAll(Arrays.copyOfRange(args, 1, args.length))); // Attach to all of them concurrently
+			return;
+		}
+
 		if (args.length != 2) { // If the specified argument list length isn't a length of valid argument list...
 
 			if (args.length == 1) { // If there's a single argument...
@@ -137,334 +196,1489 @@ public final class DynagentInstaller {
 		}
 	}
 
-	@jdk.internal.reflect.CallerSensitive()
-	@jdk.internal.vm.annotation.ForceInline()
-	public static boolean install() throws IllegalCallerException {
+	private static int attachAll(final String... args) {
 
-		try {
+		long timeout = DAEMON_TIMEOUT; // A timeout of every single attach (in milliseconds)
 
-			return install(getInstance(RETAIN_CLASS_REFERENCE).getCallerClass()); // Call with caller
+		int index = 0;
 
-		} catch (final SecurityException inaccessible) {
+		if (args[index].startsWith("--timeout=")) {
 
-			return install(null); // Call without caller
-		}
-	}
+			try {
 
-	public static boolean isInstalled() {
+				timeout = Long.parseLong(args[index++].substring("--timeout=".length()));
 
-		return DynagentImpl.isLoaded();
-	}
+			} catch (final NumberFormatException notNumber) {
 
-	private static void usage(final PrintStream out) {
+				timeout = -1L;
+			}
 
-		// Print the help message to the specified stream if it's non-null:
-		if (out != null) {
+			if (timeout <= 0L) { // If invalid...
 
-			out.println("Usage: java -Dfile.encoding=UTF-8 -Dsun.stdout.encoding=UTF-8 -Dsun.stderr.encoding=UTF-8 -jar dynagentInstaller.jar <jvm-pid> <agentpath>");
-			out.println("\t(to attach the javaagent from <agentpath> file to an already running <jvm-pid> JVM)");
-			out.println("       java -Dfile.encoding=UTF-8 -Dsun.stdout.encoding=UTF-8 -Dsun.stderr.encoding=UTF-8 -jar dynagentInstaller.jar [-help|-h|-?]");
-			out.println("\t(to print this help message to stderr)");
-			out.println("       java -Dfile.encoding=UTF-8 -Dsun.stdout.encoding=UTF-8 -Dsun.stderr.encoding=UTF-8 -jar dynagentInstaller.jar <--help|help|--h|--?|?|/?|h>");
-			out.println("\t(to print this help message to stdout)");
-			out.flush();
+				err.println("A timeout you specified isn't a positive integer!");
+				usage(err); // Print help to stderr
+				return 2; // Exit with errors
+			}
 		}
-	}
-
-	@jdk.internal.reflect.CallerSensitiveAdapter()
-	private static boolean install(final Class<?> caller) throws IllegalCallerException {
 
-		if (isInstalled()) {
+		if (args.length - index < 2) { // If there's no agentpath or no targets...
 
-			return true; // Do nothing if it's already installed
+			usage(err); // Print help to stderr
+			return 2; // Exit with errors
 		}
 
-		if (caller == null) {
+		final String agent = args[index++];
 
-			throw new IllegalCallerException(); // Require a valid caller
+		if (!new File(agent).isFile() || !new File(agent).canRead()) { // If invalid...
+
+			err.println("An agentpath you specified can't be accessed from the program (or it doesn't exist, or it isn't a valid filepath)!");
+			usage(err); // Print help to stderr
+			return 2; // Exit with errors
 		}
 
-		final String pid = findPid(); // Get PID
+		// Resolve targets (in order, without duplicates and without the current process):
+		final Set<String> pids = new LinkedHashSet<>();
 
-		if (pid == null) {
+		for (final String target : Arrays.copyOfRange(args, index, args.length)) {
 
-			return false; // If failed to get PID
-		}
+			if (target.matches("^(\\d{1,10})$")) { // A single PID
 
-		final String java = findJava(); // Get java executable path
+				pids.add(target);
 
-		if (java == null) {
+			} else if (target.equalsIgnoreCase("all") || target.startsWith("match:")) { // A selector over all visible JVMs
 
-			return false; // If failed to get java executable path
-		}
+				final Pattern selector;
+
+				try {
 
-		final String agent = buildAgent(); // Build a javaagent to attach
+					selector = compile(target.equalsIgnoreCase("all") ? ".*" : target.substring("match:".length()));
 
-		if (agent == null) {
+				} catch (final PatternSyntaxException invalid) {
 
-			return false; // If failed to build a javaagent
-		}
+					err.println("A selector you specified isn't a valid regular expression: " + invalid.getMessage());
+					return 2; // Exit with errors
+				}
 
-		final String installer = buildInstaller(); // Build an installer to attach a generated javaagent
+				for (final VirtualMachineDescriptor descriptor : list()) {
+
+					if (selector.matcher(descriptor.displayName()).find()) {
+
+						pids.add(descriptor.id());
+					}
+				}
 
-		if (installer == null) {
+			} else { // If invalid...
 
-			return false; // If failed to build an installer
+				err.println("A target you specified ('" + target + "') isn't a PID, 'all' or 'match:<regex>'!");
+				usage(err); // Print help to stderr
+				return 2; // Exit with errors
+			}
 		}
 
-		try {
+		pids.remove(valueOf(current().pid())); // Never attach to the installer itself
 
-			// Install:
-			return new ProcessBuilder(java, "-Dfile.encoding=UTF-8", "-Dsun.stdout.encoding=UTF-8", "-Dsun.stderr.encoding=UTF-8", "-jar", installer, pid, agent).start().waitFor() == 0;
+		final long start = System.nanoTime();
 
-		} catch (final UnsupportedOperationException | SecurityException | IOException | InterruptedException failed) {
+		// Every attach mostly waits for another JVM, so it's done by its own virtual thread:
+		final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
 
-			return false; // If something went wrong
+		final Map<String, Future<String[]>> results = new LinkedHashMap<>(pids.size()); // An outcome and a JSON line per target
 
-		} finally {
+		final Map<String, Long> begins = new ConcurrentHashMap<>(pids.size()); // When every attach has actually begun
 
-			// Safe deletion of temporary files:
-			if (FileCleaner.isInstalled()) {
+		for (final String pid : pids) {
 
-				clean(agent);
-				clean(installer);
-			}
-		}
-	}
+			results.put(pid, executor.submit(() -> {
 
-	private static String findPid() {
+				final long begin = System.nanoTime();
 
-		try {
+				begins.put(pid, begin);
 
-			return valueOf(current().pid()); // Find current PID
+				try {
 
-		} catch (final UnsupportedOperationException | SecurityException inaccessible) {
+					final VirtualMachine vm = attach(pid);
 
-			return null; // If something went wrong
-		}
-	}
+					try {
 
-	private static String buildAgent() {
+						vm.loadAgent(agent);
 
-		try {
+					} finally {
 
-			forName("com.github.justhm228.dynagent.internal.agent.DynagentImpl");
+						vm.detach();
+					}
 
-		} catch (final ClassNotFoundException unavailable) {
+					return new String[] { "ATTACHED", report(pid, "ATTACHED", System.nanoTime() - begin, null) };
 
-			return null;
+				} catch (final SecurityException | AttachNotSupportedException | IOException | AgentLoadException | AgentInitializationException failed) {
+
+					return new String[] { "FAILED", report(pid, "FAILED", System.nanoTime() - begin, failed.toString()) };
+				}
+			}));
 		}
 
-		final String classname = DynagentImpl.class.getTypeName();
+		executor.shutdown(); // Don't accept anything else (but don't wait for anything either)
 
-		final Manifest manifest = new Manifest();
+		int attached = 0;
 
-		{
+		int failed = 0;
 
-			final Attributes attributes = manifest.getMainAttributes();
+		int timedOut = 0;
 
-			attributes.put(MANIFEST_VERSION, "1.0"); // Manifest-Version: 1.0
-			attributes.put(new Name("Premain-Class"), classname); // Premain-Class: com.github.justhm228.dynagent.internal.agent.DynagentImpl
-			attributes.put(new Name("Agent-Class"), classname); // Agent-Class: com.github.justhm228.dynagent.internal.agent.DynagentImpl
-			attributes.put(new Name("Can-Retransform-Classes"), "true"); // Can-Retransform-Classes: true
-			attributes.put(new Name("Can-Redefine-Classes"), "true"); // Can-Redefine-Classes: true
-			attributes.put(new Name("Can-Set-Native-Method-Prefix"), "true"); // Can-Set-Native-Method-Prefix: true
-			attributes.put(SPECIFICATION_TITLE, Library.NAME); // Specification-Title: Dynagent
-			attributes.put(SPECIFICATION_VERSION, Library.VERSION); // Specification-Version: 0.1-build.1
-			attributes.put(SPECIFICATION_VENDOR, Library.AUTHOR); // Specification-Vendor: JustHuman228
-			attributes.put(IMPLEMENTATION_TITLE, Library.INTERNAL_NAME); // Implementation-Title: dynagent
-			attributes.put(IMPLEMENTATION_VERSION, Library.VERSION); // Implementation-Version: 0.1-build.1
-			attributes.put(IMPLEMENTATION_VENDOR, Library.AUTHOR); // Implementation-Vendor: JustHuman228
-		}
+		for (final Map.Entry<String, Future<String[]>> result : results.entrySet()) {
 
-		try {
+			String[] finished; // An outcome and a JSON line
 
-			final File agent = createTempFile("dynagentImpl", ".jar").getAbsoluteFile();
+			// Every attach has its own deadline (measured from when it has begun, or from now if it hasn't begun yet):
+			final long begin = begins.getOrDefault(result.getKey(), System.nanoTime());
 
-			if (FileCleaner.install()) {
+			try {
 
-				addTarget(agent);
+				finished = result.getValue().get(Math.max(0L, begin + MILLISECONDS.toNanos(timeout) - System.nanoTime()), TimeUnit.NANOSECONDS);
 
-			} else {
+			} catch (final TimeoutException slow) {
+
+				result.getValue().cancel(true); // Try to interrupt it (and don't wait for it anymore)
+				finished = new String[] { "TIMED_OUT", report(result.getKey(), "TIMED_OUT", System.nanoTime() - begins.getOrDefault(result.getKey(), begin), null) };
+
+			} catch (final ExecutionException | InterruptedException | CancellationException unexpected) {
+
+				finished = new String[] { "FAILED", report(result.getKey(), "FAILED", System.nanoTime() - begins.getOrDefault(result.getKey(), begin), unexpected.toString()) };
+			}
+
+			switch (finished[0]) {
 
-				agent.deleteOnExit();
+				case "ATTACHED" -> attached++;
+				case "TIMED_OUT" -> timedOut++;
+				default -> failed++;
 			}
 
-			try (final JarOutputStream jar = new JarOutputStream(new FileOutputStream(agent), manifest)) {
+			out.println(finished[1]); // A JSON line per target
+		}
+
+		// A JSON line of the summary:
+		out.println("{\"targets\":" + results.size() + ",\"attached\":" + attached + ",\"failed\":" + failed + ",\"timedOut\":" + timedOut + ",\"millis\":" + millis(System.nanoTime() - start) + "}");
+		out.flush();
 
-				final String resource = classname.replace('.', '/') + ".class";
+		executor.shutdownNow(); // Interrupt everything which is still running
 
-				final String[] entries = resource.split("/");
+		return attached == results.size() ? 0 : 1;
+	}
 
-				final StringBuilder path = new StringBuilder(entries.length);
+	private static String report(final String pid, final String outcome, final long nanos, final String error) {
 
-				for (int i = 0; i < entries.length - 1; i++) {
+		final StringBuilder line = new StringBuilder(128);
 
-					path.append(entries[i]).append("/");
+		line.append("{\"pid\":").append(pid);
+		line.append(",\"outcome\":\"").append(outcome).append('"');
+		line.append(",\"millis\":").append(millis(nanos));
 
-					final JarEntry entry = new JarEntry(path.toString());
+		if (error != null) {
 
-					try {
+			line.append(",\"error\":\"");
 
-						jar.putNextEntry(entry);
+			// Escape a JSON string:
+			for (final char c : error.toCharArray()) {
 
-					} catch (final IOException ignored) {
+				switch (c) {
 
-					} finally {
+					case '"', '\\' -> line.append('\\').append(c);
+					case '\n' -> line.append("\\n");
+					case '\r' -> line.append("\\r");
+					case '\t' -> line.append("\\t");
+					default -> {
+
+						if (c < 0x20) {
 
-						jar.closeEntry();
+							line.append(String.format("\\u%04x", (int) c));
+
+						} else {
+
+							line.append(c);
+						}
 					}
 				}
+			}
 
-				final JarEntry entry = new JarEntry(path.append(entries[entries.length - 1]).toString());
+			line.append('"');
+		}
 
-				try {
+		return line.append('}').toString();
+	}
 
-					jar.putNextEntry(entry);
+	private static String millis(final long nanos) {
 
-					final InputStream bytecode = DynagentImpl.class.getResourceAsStream("/" + path);
+		return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0D);
+	}
 
-					if (bytecode != null) {
+	@jdk.internal.reflect.CallerSensitive()
+	@jdk.internal.vm.annotation.ForceInline()
+	public static boolean install() throws IllegalCallerException {
 
-						try (bytecode) {
+		try {
 
-							bytecode.transferTo(jar);
+			return install(getInstance(RETAIN_CLASS_REFERENCE).getCallerClass()); // Call with caller
 
-						} catch (final IOException ignored) {
+		} catch (final SecurityException inaccessible) {
 
-						} finally {
+			return install(null); // Call without caller
+		}
+	}
 
-							jar.flush();
-						}
-					}
+	@jdk.internal.reflect.CallerSensitive()
+	@jdk.internal.vm.annotation.ForceInline()
+	public static CompletableFuture<Boolean> installAsync() throws IllegalCallerException {
 
-				} catch (final IOException ignored) {
+		try {
 
-				} finally {
+			return installAsync(getInstance(RETAIN_CLASS_REFERENCE).getCallerClass()); // Call with caller
 
-					jar.closeEntry();
-				}
+		} catch (final SecurityException inaccessible) {
 
-				return agent.getPath();
+			return installAsync(null); // Call without caller
+		}
+	}
 
-			} catch (final SecurityException | IOException failed) {
+	@jdk.internal.reflect.CallerSensitive()
+	@jdk.internal.vm.annotation.ForceInline()
+	public static boolean install(final long timeout, final TimeUnit unit) throws IllegalCallerException {
 
-				return null;
-			}
+		try {
 
-		} catch (final IOException failed) {
+			return install(getInstance(RETAIN_CLASS_REFERENCE).getCallerClass(), timeout, unit); // Call with caller
 
-			return null;
+		} catch (final SecurityException inaccessible) {
+
+			return install(null, timeout, unit); // Call without caller
 		}
 	}
 
-	private static String buildInstaller() {
+	public static boolean canInstall() {
 
-		final String classname = DynagentInstaller.class.getTypeName(); // A main class to be included in a jar file
+		return isInstalled() || findBlocker() == null;
+	}
 
-		// Write manifest file:
-		final Manifest manifest = new Manifest();
+	public static boolean isInstalled() {
 
-		{
+		return DynagentImpl.isLoaded();
+	}
 
-			final Attributes attributes = manifest.getMainAttributes();
+	public static String getMethod() {
 
-			attributes.put(MANIFEST_VERSION, "1.0"); // Manifest-Version: 1.0
-			attributes.put(MAIN_CLASS, classname); // Main-Class: com.github.justhm228.dynagent.internal.agent.DynagentInstaller
-			attributes.put(SPECIFICATION_TITLE, Library.NAME); // Specification-Title: Dynagent
-			attributes.put(SPECIFICATION_VERSION, Library.VERSION); // Specification-Version: 0.1-build.1
-			attributes.put(SPECIFICATION_VENDOR, Library.AUTHOR); // Specification-Vendor: JustHuman228
-			attributes.put(IMPLEMENTATION_TITLE, Library.INTERNAL_NAME); // Implementation-Title: dynagent
-			attributes.put(IMPLEMENTATION_VERSION, Library.VERSION); // Implementation-Version: 0.1-build.1
-			attributes.put(IMPLEMENTATION_VENDOR, Library.AUTHOR); // Implementation-Vendor: JustHuman228
+		if (!isInstalled()) {
+
+			return null; // Nothing to report if Dynagent isn't installed yet
+		}
+
+		if (DynagentImpl.isStartup()) {
+
+			return "STARTUP"; // If Dynagent was installed via a JVM option
+		}
+
+		return method; // A name of `InstallMethod` constant
+	}
+
+	private static void usage(final PrintStream out) {
+
+		// Print the help message to the specified stream if it's non-null:
+		if (out != null) {
+
+			out.println("Usage: java -Dfile.encoding=UTF-8 -Dsun.stdout.encoding=UTF-8 -Dsun.stderr.encoding=UTF-8 -jar dynagentInstaller.jar <jvm-pid> <agentpath>");
+			out.println("\t(to attach the javaagent from <agentpath> file to an already running <jvm-pid> JVM)");
+			out.println("       java -Dfile.encoding=UTF-8 -Dsun.stdout.encoding=UTF-8 -Dsun.stderr.encoding=UTF-8 -jar dynagentInstaller.jar --multi [--timeout=<millis>] <agentpath> <jvm-pid|all|match:<regex>>...");
+			out.println("\t(to concurrently attach the javaagent from <agentpath> file to many JVMs, printing a JSON line per JVM and a summary)");
+			out.println("       java -Dfile.encoding=UTF-8 -Dsun.stdout.encoding=UTF-8 -Dsun.stderr.encoding=UTF-8 -jar dynagentInstaller.jar --daemon [socket]");
+			out.println("\t(to serve attach requests of other JVMs of the same user on a UNIX domain <socket>)");
+			out.println("       java -Dfile.encoding=UTF-8 -Dsun.stdout.encoding=UTF-8 -Dsun.stderr.encoding=UTF-8 -jar dynagentInstaller.jar [-help|-h|-?]");
+			out.println("\t(to print this help message to stderr)");
+			out.println("       java -Dfile.encoding=UTF-8 -Dsun.stdout.encoding=UTF-8 -Dsun.stderr.encoding=UTF-8 -jar dynagentInstaller.jar <--help|help|--h|--?|?|/?|h>");
+			out.println("\t(to print this help message to stdout)");
+			out.flush();
 		}
+	}
+
+	@jdk.internal.reflect.CallerSensitiveAdapter()
+	private static boolean install(final Class<?> caller) throws IllegalCallerException {
 
 		try {
 
-			// Generate a temporary file:
-			final File installer = createTempFile("dynagentInstaller", ".jar").getAbsoluteFile();
+			return installAsync(caller).join(); // Start (or join) the installation and wait until it finishes
 
-			if (FileCleaner.install()) { // If we can delete the file safely:
+		} catch (final CompletionException | CancellationException failed) {
 
-				addTarget(installer); // Add it as a target to "safe deletion algorithm"
+			return false; // If something went wrong
+		}
+	}
 
-			} else { // Or else...
+	@jdk.internal.reflect.CallerSensitiveAdapter()
+	private static boolean install(final Class<?> caller, final long timeout, final TimeUnit unit) throws IllegalCallerException {
 
-				installer.deleteOnExit(); // Use Java's built-in "deletion on exit algorithm"
-			}
+		Objects.requireNonNull(unit);
 
-			// Write a jar file:
-			try (final JarOutputStream jar = new JarOutputStream(new FileOutputStream(installer), manifest)) {
+		// Install on a helper thread, so the caller can stop waiting for it at any moment:
+		final CompletableFuture<Boolean> installing = join(caller);
+		final InstallRecorder recorder = InstallRecorder.getLast();
 
-				final String resource = classname.replace('.', '/') + ".class"; // A zip path of a main class in a jar file
+		try {
 
-				final String[] entries = resource.split("/");
+			return installing.get(timeout, unit);
 
-				final StringBuilder path = new StringBuilder(entries.length); // A temporary "path builder"
+		} catch (final TimeoutException expired) {
 
-				// Write packages to a jar file:
-				for (int i = 0; i < entries.length - 1; i++) {
+			// The installation is shared, so it's only cancelled if nobody else waits for it:
+			leave(installing, () -> {
 
-					path.append(entries[i]).append("/");
+				// Report a timeout before cancelling, or the cancelled installation could be reported as a plain failure:
+				if (recorder != null) {
 
-					final JarEntry entry = new JarEntry(path.toString());
+					recorder.expire("The installation didn't finish in " + unit.toMillis(timeout) + " ms");
+				}
 
-					try {
+				cancel();
+			});
 
-						jar.putNextEntry(entry); // Write a package to a jar file
+			return false;
 
-					} catch (final IOException ignored) {
+		} catch (final InterruptedException interrupted) {
 
-						// Do nothing if something went wrong
+			leave(installing, () -> {
 
-					} finally {
+				if (recorder != null) {
 
-						jar.closeEntry(); // Flush entry
-					}
+					recorder.end(recorder.fail("The installation was interrupted"), null);
 				}
 
-				// Write a main class to a jar file:
-				final JarEntry entry = new JarEntry(path.append(entries[entries.length - 1]).toString());
+				cancel();
+			});
 
-				try {
+			Thread.currentThread().interrupt(); // Restore the interrupt status
+			return false;
 
-					jar.putNextEntry(entry); // Prepare a main class to be written
+		} catch (final ExecutionException | CancellationException failed) {
 
-					final InputStream bytecode = DynagentInstaller.class.getResourceAsStream("/" + path);
+			if (recorder != null) {
 
-					if (bytecode != null) { // If a main class is accessible...
+				recorder.end(recorder.fail(failed.toString()), null);
+			}
 
-						try (bytecode) {
+			return false; // If something went wrong
+		}
+	}
 
-							bytecode.transferTo(jar); // Write a main class
+	@jdk.internal.reflect.CallerSensitiveAdapter()
+	private static CompletableFuture<Boolean> installAsync(final Class<?> caller) throws IllegalCallerException {
 
-						} catch (final IOException ignored) {
+		return join(caller).copy(); // A copy can't be completed or cancelled by the caller
+	}
 
-							// Do nothing if something went wrong
+	private static CompletableFuture<Boolean> join(final Class<?> caller) throws IllegalCallerException {
 
-						} finally {
+		if (isInstalled()) {
 
-							jar.flush(); // Flush the data
-						}
-					}
+			return completedFuture(true); // Do nothing if it's already installed
+		}
 
-				} catch (final IOException ignored) {
+		if (caller == null) {
 
-					// Do nothing if something went wrong
+			throw new IllegalCallerException(); // Require a valid caller
+		}
 
-				} finally {
+		if (failures > 0 && System.nanoTime() - retryAt < 0L) {
 
-					jar.closeEntry(); // Flush entry
-				}
+			return completedFuture(false); // Don't retry a failing installation too often (the last report tells why it failed)
+		}
 
-				return installer.getPath(); // If build is successfully ended
+		final CompletableFuture<Boolean> installation = new CompletableFuture<>();
 
-			} catch (final SecurityException | IOException failed) {
+		WAITERS.put(installation, 1); // Before it's published, so every caller which joins it is counted
 
-				return null; // If something went wrong
+		final CompletableFuture<Boolean> running = INSTALLATION.compareAndExchange(null, installation);
+
+		if (running != null) {
+
+			WAITERS.remove(installation);
+
+			// Joining is atomic with leaving, so the installation in flight is either joined or already abandoned:
+			if (WAITERS.computeIfPresent(running, (ignored, waiters) -> waiters + 1) == null) {
+
+				// It's being cancelled (or it's just ended), so start another one once it ends:
+				return running.handle((installed, failed) -> null).thenCompose((ignored) -> join(caller));
 			}
 
-		} catch (final IOException failed) {
+			return running; // Join the installation in flight
+		}
+
+		if (isInstalled()) { // If another installation finished right before this one was started:
+
+			WAITERS.remove(installation);
+			INSTALLATION.set(null);
+			installation.complete(true);
+			return installation;
+		}
+
+		CompletableFuture<Boolean> attempt;
+
+		try {
+
+			attempt = attempt();
+
+		} catch (final RuntimeException failed) {
+
+			attempt = failedFuture(failed); // Don't leave the installation in flight forever
+		}
+
+		attempt.whenComplete((installed, failed) -> {
+
+			// Waits for a waiter which is abandoning it, so it isn't replaced before it's cancelled:
+			if (WAITERS.remove(installation) != null) {
+
+				backoff(failed == null && installed); // Before the next caller can start another installation (an abandoned one didn't really fail)
+			}
+
+			INSTALLATION.set(null); // Let the next caller retry if it failed
+
+			if (failed != null) {
+
+				installation.completeExceptionally(failed);
+
+			} else {
+
+				installation.complete(installed);
+			}
+		});
+
+		return installation;
+	}
+
+	private static void leave(final CompletableFuture<Boolean> installation, final Runnable abandon) {
+
+		// Stop waiting for the installation, and abandon it if the caller was the last one waiting for it:
+		WAITERS.computeIfPresent(installation, (ignored, waiters) -> {
+
+			if (waiters > 1) {
+
+				return waiters - 1;
+			}
+
+			abandon.run(); // While joining it is blocked (and before it can end, so another installation can't be cancelled instead)
+			return null;
+		});
+	}
+
+	private static void backoff(final boolean installed) {
+
+		if (installed) {
+
+			failures = 0;
+			return; // Nothing to wait for
+		}
+
+		final long initial = Math.max(0L, Long.getLong("dynagent.backoff", BACKOFF));
+		final long limit = Math.max(initial, Long.getLong("dynagent.backoff.max", BACKOFF_LIMIT));
+		final int failed = failures + 1; // Only a single installation can end at a time
+
+		long delay = initial;
+
+		// Double the delay after every failure in a row:
+		for (int i = 1; i < failed && delay < limit; i++) {
+
+			delay *= 2L;
+		}
+
+		retryAt = System.nanoTime() + MILLISECONDS.toNanos(Math.min(delay, limit));
+		failures = failed;
+	}
+
+	private static CompletableFuture<Boolean> attempt() {
+
+		final InstallRecorder recorder = InstallRecorder.begin(); // Record timings of every phase
+
+		final String blocked = phase("preflight", DynagentInstaller::findBlocker); // Check VM flags before any file or process work
+
+		if (blocked != null) {
+
+			return completedFuture(recorder.end(fail(blocked), null)); // If dynamic attach is disabled in this VM
+		}
+
+		final String pid = phase("findPid", DynagentInstaller::findPid); // Get PID
+
+		if (pid == null) {
+
+			return completedFuture(recorder.end(fail("Can't find a PID of the current process"), null)); // If failed to get PID
+		}
+
+		final String mode = phase("findMode", DynagentInstaller::findMode); // Get the preferred way to attach
+
+		// Don't block the caller even while attaching from the current process or launching a temporary one:
+		return supplyAsync(() -> {
+
+			if (installInProcess(pid, mode) || installDaemon(pid, mode)) {
+
+				return completedFuture(true); // If installation is successfully finished
+			}
+
+			if (!mode.equals("auto") && !mode.equals("process")) {
+
+				return completedFuture(false); // Don't fall back if another way is explicitly required
+			}
+
+			return launch(pid); // Fall back to a temporary process
+
+		}, (task) -> {
+
+			final Thread helper = new Thread(() -> {
+
+				try {
+
+					task.run();
+
+				} finally {
+
+					HELPERS.remove(Thread.currentThread());
+				}
+
+			}, "Dynagent Installer");
+
+			helper.setDaemon(true); // Don't prevent the JVM from exiting
+			HELPERS.add(helper); // Let a timed installation interrupt it
+			helper.start();
+
+		}).thenCompose((installed) -> installed).thenApply((installed) -> recorder.end(installed, method));
+	}
+
+	private static boolean installInProcess(final String pid, final String mode) {
+
+		// Try to attach from the current process first (it's much cheaper than launching a new one):
+		if (mode.equals("direct") || (mode.equals("auto") && phase("checkDirect", DynagentAttacher::isSupported))) {
+
+			if (installDirect(pid)) {
+
+				method = "DIRECT_ATTACH";
+				return true; // If installation is successfully finished
+			}
+		}
+
+		if (mode.equals("self") || (mode.equals("auto") && isSelfAttachAllowed())) {
+
+			if (installSelf(pid)) {
+
+				method = "SELF_ATTACH";
+				return true; // If installation is successfully finished
+			}
+		}
+
+		return false; // If it can't be installed from the current process
+	}
+
+	private static CompletableFuture<Boolean> launch(final String pid) {
+
+		final String java = phase("findJava", DynagentInstaller::findJava); // Get java executable path
+
+		if (java == null) {
+
+			return completedFuture(fail("Can't find a `java` executable to launch an installer")); // If failed to get java executable path
+		}
+
+		final String agent = phase("buildAgent", DynagentInstaller::buildAgent); // Build a javaagent to attach (it's an installer at the same time)
+
+		if (agent == null) {
+
+			return completedFuture(fail("Can't build a javaagent")); // If failed to build a javaagent
+		}
+
+		if (isCancelled()) {
+
+			cleanup(agent);
+			return completedFuture(false); // If a timed installation already gave up
+		}
+
+		final Process process;
+
+		final boolean quiet = !Boolean.parseBoolean(System.getProperty("dynagent.process.output", "true")); // Whether to discard the output
+
+		final long spawned = System.nanoTime();
+
+		final FileChannel archiving = lockArchive(agent); // Only one launch at a time may create a class-data sharing archive
+
+		try {
+
+			final List<String> command = new ArrayList<>(16);
+
+			command.add(java);
+			command.addAll(findOptions(agent, archiving != null)); // The installer's only job is a single attach, so start it as fast as possible
+			command.addAll(List.of("-Dfile.encoding=UTF-8", "-Dsun.stdout.encoding=UTF-8", "-Dsun.stderr.encoding=UTF-8", "-jar", agent, pid, agent));
+
+			// Launch an installer (its output must be read or discarded, or a full pipe would block it forever):
+			process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(quiet ? ProcessBuilder.Redirect.DISCARD : ProcessBuilder.Redirect.PIPE).start();
+
+		} catch (final UnsupportedOperationException | SecurityException | IOException failed) {
+
+			record("spawn", System.nanoTime() - spawned);
+			unlock(archiving);
+			cleanup(agent);
+			return completedFuture(fail(failed.toString())); // If something went wrong
+		}
+
+		record("spawn", System.nanoTime() - spawned);
+
+		final CompletableFuture<String> output = quiet ? completedFuture(null) : drain(process.getInputStream());
+
+		INSTALLERS.add(process); // Let a timed installation kill it
+
+		if (isCancelled()) {
+
+			process.destroyForcibly(); // If a timed installation gave up while it was being launched
+		}
+
+		final long started = System.nanoTime();
+
+		// Watch the installer without blocking any thread:
+		return process.onExit().handle((exited, failed) -> {
+
+			record("wait", System.nanoTime() - started);
+			output(output);
+
+			try {
+
+				if (failed != null) {
+
+					return fail(failed.toString()); // If something went wrong
+				}
+
+				if (exited.exitValue() != 0) {
+
+					return fail("An installer exited with code " + exited.exitValue()); // If the temporary process failed to attach
+				}
+
+				if (isInstalled()) {
+
+					method = "PROCESS";
+					return true; // If installation is successfully finished
+				}
+
+				return fail("An installer attached, but the javaagent wasn't loaded"); // If something else went wrong
+
+			} finally {
+
+				INSTALLERS.remove(process);
+				unlock(archiving); // The archive is dumped when the installer exits, so it's complete now
+				cleanup(agent);
+			}
+		});
+	}
+
+	private static CompletableFuture<String> drain(final InputStream stream) {
+
+		final CompletableFuture<String> drained = new CompletableFuture<>();
+
+		// Read the whole output, but keep only its beginning (the exception message is more useful than the stack tail):
+		Thread.ofVirtual().name("Dynagent Installer Output").start(() -> {
+
+			final ByteArrayOutputStream kept = new ByteArrayOutputStream(256);
+			final byte[] buffer = new byte[1024];
+			long total = 0L;
+
+			try (stream) {
+
+				for (int read; (read = stream.read(buffer)) >= 0; total += read) {
+
+					kept.write(buffer, 0, Math.min(read, OUTPUT_LIMIT - kept.size()));
+				}
+
+			} catch (final IOException ignored) {
+
+				// If the installer was killed
+			}
+
+			final String text = kept.toString(UTF_8).strip();
+
+			drained.complete(total > kept.size() ? text + System.lineSeparator() + "... (" + (total - kept.size()) + " more bytes)" : text.isEmpty() ? null : text);
+		});
+
+		return drained;
+	}
+
+	private static void output(final CompletableFuture<String> drained) {
+
+		final InstallRecorder recorder = InstallRecorder.getLast();
+
+		try {
+
+			final String output = drained.get(OUTPUT_TIMEOUT, MILLISECONDS); // The rest of the output follows the exit right away
+
+			if (recorder != null && output != null) {
+
+				recorder.output(output);
+			}
+
+		} catch (final InterruptedException interrupted) {
+
+			Thread.currentThread().interrupt(); // Restore the interrupt status
+
+		} catch (final ExecutionException | TimeoutException ignored) {
+
+			// If the output is still open (e.g. inherited by something launched by the installer)
+		}
+	}
+
+	private static void cancel() {
+
+		// Stop waiting for attach in the current process (attach threads give up once they're interrupted):
+		HELPERS.forEach(Thread::interrupt);
+
+		// Kill temporary installers together with anything they could launch:
+		for (final Process installer : INSTALLERS) {
+
+			installer.descendants().forEach(ProcessHandle::destroyForcibly);
+			installer.destroyForcibly();
+		}
+	}
+
+	private static boolean installDirect(final String pid) {
+
+		final String agent = phase("buildAgent", DynagentInstaller::buildAgent); // Build a javaagent to attach
+
+		if (agent == null) {
+
+			return fail("Can't build a javaagent"); // If failed to build a javaagent
+		}
+
+		try {
+
+			if (isCancelled()) {
+
+				return false; // If a timed installation already gave up
+			}
+
+			// Attach by speaking the attach protocol ourselves (without the Attach API):
+			return phase("directAttach", () -> DynagentAttacher.attach(pid, agent) && isInstalled()) || fail("The VM didn't load the javaagent via its attach protocol");
+
+		} finally {
+
+			cleanup(agent);
+		}
+	}
+
+	private static boolean installSelf(final String pid) {
+
+		final String agent = phase("buildAgent", DynagentInstaller::buildAgent); // Build a javaagent to attach
+
+		if (agent == null) {
+
+			return fail("Can't build a javaagent"); // If failed to build a javaagent
+		}
+
+		try {
+
+			if (isCancelled()) {
+
+				return false; // If a timed installation already gave up
+			}
+
+			return phase("selfAttach", () -> {
+
+				try {
+
+					// Attach directly from the current process:
+					final VirtualMachine vm = attach(pid);
+
+					try {
+
+						vm.loadAgent(agent);
+
+					} finally {
+
+						vm.detach();
+					}
+
+					return isInstalled() || fail("The VM didn't load the javaagent via the Attach API");
+
+				} catch (final SecurityException | AttachNotSupportedException | IOException | AgentLoadException | AgentInitializationException failed) {
+
+					return fail(failed.toString()); // If the current VM doesn't allow to attach to itself (or something else went wrong)
+				}
+			});
+
+		} finally {
+
+			cleanup(agent);
+		}
+	}
+
+	private static boolean installDaemon(final String pid, final String mode) {
+
+		if (!mode.equals("auto") && !mode.equals("daemon")) {
+
+			return false; // If another way is explicitly required
+		}
+
+		final String socket = findDaemon(); // Find an attach daemon shared by JVMs of the current user
+
+		if (socket == null || !new File(socket).exists()) {
+
+			return fail("There's no attach daemon"); // If there's no attach daemon (it's much cheaper to check than to connect)
+		}
+
+		final String agent = phase("buildAgent", DynagentInstaller::buildAgent); // Build a javaagent to attach
+
+		if (agent == null) {
+
+			return fail("Can't build a javaagent"); // If failed to build a javaagent
+		}
+
+		try {
+
+			if (isCancelled()) {
+
+				return false; // If a timed installation already gave up
+			}
+
+			return phase("daemon", () -> request(socket, pid, agent));
+
+		} finally {
+
+			cleanup(agent);
+		}
+	}
+
+	private static boolean request(final String socket, final String pid, final String agent) {
+
+		try (final SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+
+			channel.connect(UnixDomainSocketAddress.of(socket));
+
+			// Don't tell anything to a daemon of another user (it can't attach to the current process anyway):
+			if (!channel.getOption(ExtendedSocketOptions.SO_PEERCRED).user().equals(Files.getOwner(Path.of(agent)))) {
+
+				return fail("An attach daemon is run by another user");
+			}
+
+			// Request: "<pid>\n<agentpath>\n"
+			channel.write(UTF_8.encode(pid + "\n" + agent + "\n"));
+			channel.shutdownOutput();
+
+			// A daemon is another process, so don't wait for it forever:
+			final Closeable connection = channel; // The watchdog closes it early (the try block closes it anyway)
+			final CompletableFuture<Void> watchdog = runAsync(() -> {
+
+				try {
+
+					connection.close(); // Interrupts a blocking read
+
+				} catch (final IOException ignored) {
+
+				}
+
+			}, delayedExecutor(DAEMON_TIMEOUT, MILLISECONDS));
+
+			try {
+
+				// Response: "OK\n" or "FAILED <reason>\n"
+				final String response = read(channel).strip();
+
+				if (response.equals("OK") && isInstalled()) {
+
+					method = "DAEMON";
+					return true; // If installation is successfully finished
+				}
+
+				return fail(response.isEmpty() ? "An attach daemon didn't respond" : "An attach daemon responded: " + response); // If the daemon failed to attach
+
+			} finally {
+
+				watchdog.cancel(false);
+			}
+
+		} catch (final IOException | UnsupportedOperationException | SecurityException | InvalidPathException failed) {
+
+			return fail(failed.toString()); // If the daemon isn't reachable (or something else went wrong)
+		}
+	}
+
+	private static boolean serve(final String socket) {
+
+		if (socket == null) {
+
+			err.println("A socket path to listen on isn't specified (and it can't be found)!");
+			return false;
+		}
+
+		final Path path;
+
+		try {
+
+			path = Path.of(socket).toAbsolutePath();
+
+		} catch (final InvalidPathException | IOError invalid) {
+
+			err.println("A socket path you specified isn't a valid filepath!");
+			return false;
+		}
+
+		try (final ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+
+			// Replace a stale socket, but not a socket of a running daemon:
+			try (final SocketChannel running = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+
+				running.connect(UnixDomainSocketAddress.of(path));
+
+				err.println("Another daemon is already listening on " + path + "!");
+				return false;
+
+			} catch (final IOException notRunning) {
+
+				Files.deleteIfExists(path);
+			}
+
+			server.bind(UnixDomainSocketAddress.of(path));
+
+			try {
+
+				Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------")); // Only the current user can connect
+
+			} catch (final UnsupportedOperationException notPosix) {
+
+				// Peer credentials are checked anyway
+			}
+
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+
+				try {
+
+					Files.deleteIfExists(path);
+
+				} catch (final IOException ignored) {
+
+				}
+
+			}, "Dynagent Daemon Cleaner"));
+
+			final UserPrincipal owner = Files.getOwner(path); // The current user
+
+			out.println("Listening on " + path + "...");
+
+			while (true) {
+
+				final SocketChannel client = server.accept();
+
+				// Attaching blocks for a while, so every request is served by its own (cheap) thread:
+				Thread.ofVirtual().name("Dynagent Daemon Worker").start(() -> serve(client, owner));
+			}
+
+		} catch (final IOException | UnsupportedOperationException | SecurityException failed) {
+
+			err.println("Failed to serve because of:");
+			failed.printStackTrace();
+			return false;
+		}
+	}
+
+	private static void serve(final SocketChannel client, final UserPrincipal owner) {
+
+		try (client) {
+
+			// Only the same user can attach to a JVM anyway, so don't serve anybody else:
+			if (!client.getOption(ExtendedSocketOptions.SO_PEERCRED).user().equals(owner)) {
+
+				return;
+			}
+
+			final String[] request = read(client).split("\n", -1); // "<pid>\n<agentpath>\n"
+
+			String response;
+
+			if (request.length < 2 || !request[0].matches("^(\\d{1,10})$") || !new File(request[1]).isFile()) {
+
+				response = "FAILED Invalid request";
+
+			} else {
+
+				try {
+
+					final VirtualMachine vm = attach(request[0]);
+
+					try {
+
+						vm.loadAgent(request[1]);
+
+					} finally {
+
+						vm.detach();
+					}
+
+					response = "OK";
+
+				} catch (final SecurityException | AttachNotSupportedException | IOException | AgentLoadException | AgentInitializationException failed) {
+
+					response = "FAILED " + failed;
+				}
+			}
+
+			client.write(UTF_8.encode(response.replace('\n', ' ') + "\n"));
+
+		} catch (final IOException | UnsupportedOperationException | SecurityException ignored) {
+
+			// A client is gone (or it can't be checked)
+		}
+	}
+
+	private static String read(final SocketChannel channel) throws IOException {
+
+		final ByteBuffer buffer = ByteBuffer.allocate(DAEMON_REQUEST_LIMIT);
+
+		// Read until the other side shuts its output down:
+		int read = 0;
+
+		while (buffer.hasRemaining() && read >= 0) {
+
+			read = channel.read(buffer); // Blocks until something is received
+		}
+
+		return UTF_8.decode(buffer.flip()).toString();
+	}
+
+	private static void cleanup(final String file) {
+
+		phase("cleanup", () -> {
+
+			// Safe deletion of a temporary file (cached files are reused, so they mustn't be deleted):
+			if (!FileCache.contains(file) && FileCleaner.isInstalled()) {
+
+				clean(file);
+			}
+
+			return true;
+		});
+	}
+
+	private static <T> T phase(final String name, final Supplier<T> action) {
+
+		final InstallRecorder recorder = InstallRecorder.getLast();
+
+		return recorder == null ? action.get() : recorder.phase(name, action);
+	}
+
+	private static void record(final String name, final long nanos) {
+
+		final InstallRecorder recorder = InstallRecorder.getLast();
+
+		if (recorder != null) {
+
+			recorder.record(name, nanos);
+		}
+	}
+
+	private static boolean fail(final String cause) {
+
+		final InstallRecorder recorder = InstallRecorder.getLast();
+
+		if (recorder != null) {
+
+			recorder.fail(cause); // Remember why the last step failed
+		}
+
+		return false;
+	}
+
+	private static boolean isCancelled() {
+
+		final InstallRecorder recorder = InstallRecorder.getLast();
+
+		return recorder != null && recorder.getReport() != null; // The recorder is ended early only by a timed installation
+	}
+
+	private static boolean isSelfAttachAllowed() {
+
+		try {
+
+			// The Attach API checks the same property (it's read only once, on JVM startup):
+			final String allowed = System.getProperty("jdk.attach.allowAttachSelf");
+
+			return allowed != null && (allowed.isEmpty() || Boolean.parseBoolean(allowed));
+
+		} catch (final SecurityException inaccessible) {
+
+			return false; // If we can't check it
+		}
+	}
+
+	private static String findBlocker() {
+
+		if (!preflighted) { // These flags can't be changed at runtime, so it's enough to check them once:
+
+			blocker = preflight();
+			preflighted = true;
+		}
+
+		return blocker;
+	}
+
+	private static String preflight() {
+
+		// Only ask the VM (it loads the whole management API) if its flags could be other than the defaults:
+		if (isDefault("DisableAttachMechanism") && isDefault("EnableDynamicAgentLoading")) {
+
+			return null; // Nothing disables dynamic attach
+		}
+
+		try {
+
+			final HotSpotDiagnosticMXBean vm = getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+
+			if (Boolean.parseBoolean(vm.getVMOption("DisableAttachMechanism").getValue())) {
+
+				return "The attach mechanism is disabled with -XX:+DisableAttachMechanism";
+			}
+
+			if (!Boolean.parseBoolean(vm.getVMOption("EnableDynamicAgentLoading").getValue())) {
+
+				return "Dynamic loading of javaagents is disabled with -XX:-EnableDynamicAgentLoading";
+			}
+
+		} catch (final IllegalArgumentException | UnsupportedOperationException | SecurityException | NullPointerException unknown) {
+
+			// If it isn't HotSpot (or something else went wrong), just try to attach
+		}
+
+		return null; // Nothing disables dynamic attach
+	}
+
+	static boolean isDefault(final String option) {
+
+		final String arguments = findArguments();
+
+		// A VM option can only differ from its default if it's passed somehow (or if an options file could pass it):
+		return arguments != null && !arguments.contains(option) && !arguments.contains("VMOptionsFile") && !arguments.contains("Flags=") && !arguments.contains("@");
+	}
+
+	private static String findArguments() {
+
+		try {
+
+			// Options can be passed via the command line (it's much cheaper to read than to ask the VM) or via environment:
+			final StringBuilder arguments = new StringBuilder(new String(Files.readAllBytes(Path.of("/proc/self/cmdline")), UTF_8));
+
+			for (final String variable : List.of("JAVA_TOOL_OPTIONS", "JDK_JAVA_OPTIONS", "_JAVA_OPTIONS")) {
+
+				final String value = System.getenv(variable);
+
+				if (value != null) {
+
+					arguments.append('\0').append(value);
+				}
+			}
+
+			return arguments.toString();
+
+		} catch (final IOException | UnsupportedOperationException | SecurityException | InvalidPathException unknown) {
+
+			return null; // If there's no `/proc` (or it's inaccessible)
+		}
+	}
+
+	private static String findMode() {
+
+		try {
+
+			// "auto" (by default), "direct" (only attach via the attach protocol of HotSpot on Linux),
+			// "self" (only attach via the Attach API from the current process), "daemon" (only attach via an attach daemon)
+			// or "process" (only attach from a temporary process):
+			final String mode = System.getProperty("dynagent.attach", "auto").trim().toLowerCase(Locale.ROOT);
+
+			return switch (mode) {
+
+				case "direct", "self", "daemon", "process" -> mode;
+				default -> "auto";
+			};
+
+		} catch (final SecurityException inaccessible) {
+
+			return "auto"; // If we can't check it
+		}
+	}
+
+	private static List<String> findOptions(final String agent, final boolean archiving) {
+
+		try {
+
+			if (!Boolean.parseBoolean(System.getProperty("dynagent.process.tuning", "true"))) {
+
+				return List.of(); // If the tuning is disabled
+			}
+
+		} catch (final SecurityException inaccessible) {
+
+			// If we can't check it, tune it anyway
+		}
+
+		final List<String> options = new ArrayList<>(List.of(
+				"-XX:+IgnoreUnrecognizedVMOptions", // Don't fail on a VM which doesn't support any of these options
+				"-XX:TieredStopAtLevel=1", // C1 only (nothing lives long enough for C2)
+				"-XX:+UseSerialGC", // The cheapest GC to start
+				"-Xms4m", "-Xmx32m", // A tiny heap is enough for a single attach
+				"-XX:-UsePerfData" // Don't create a `hsperfdata` file
+		));
+
+		if (FileCache.contains(agent)) { // A class-data sharing archive is only valid while the jar file doesn't change:
+
+			final String archive = agent.substring(0, agent.length() - ".jar".length()) + ".jsa";
+
+			// Dumped automatically on the first launch (or over a stale one) and then mapped by every later launch:
+			if (archiving) {
+
+				options.add("-XX:SharedArchiveFile=" + archive);
+				options.add("-XX:+AutoCreateSharedArchive");
+				options.add("-Xlog:cds=off,cds+dynamic=off"); // Don't mix its warnings (e.g. about a stale archive) into the output
+
+			} else if (new File(archive).isFile()) {
+
+				// Another launch is creating it, so just map it (a stale or incomplete one is rejected by the JVM):
+				options.add("-XX:SharedArchiveFile=" + archive);
+				options.add("-Xlog:cds=off,cds+dynamic=off");
+			}
+		}
+
+		return options;
+	}
+
+	private static FileChannel lockArchive(final String agent) {
+
+		if (!FileCache.contains(agent)) {
+
+			return null; // If there's no archive to create
+		}
+
+		try {
+
+			final FileChannel lock = FileChannel.open(Path.of(agent.substring(0, agent.length() - ".jar".length()) + ".jsa.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+
+			try {
+
+				if (lock.tryLock() != null) {
+
+					return lock; // It's released when the installer exits
+				}
+
+			} catch (final IOException | OverlappingFileLockException locked) {
+
+				// If another launch holds it (or it can't be locked at all)
+			}
+
+			unlock(lock);
+
+		} catch (final IOException | UnsupportedOperationException | SecurityException | InvalidPathException failed) {
+
+			// Just launch it without creating an archive
+		}
+
+		return null;
+	}
+
+	private static void unlock(final FileChannel lock) {
+
+		if (lock != null) {
+
+			try {
+
+				lock.close(); // Releases its lock as well
+
+			} catch (final IOException ignored) {
+
+				// It's released when the JVM exits anyway
+			}
+		}
+	}
+
+	private static String findDaemon() {
+
+		try {
+
+			// "false" disables the daemon, any other value is a path to its socket:
+			final String configured = System.getProperty("dynagent.daemon");
+
+			if (configured != null && configured.trim().equalsIgnoreCase("false")) {
+
+				return null;
+			}
+
+			if (configured != null && !configured.isBlank()) {
+
+				return configured;
+			}
+
+			return new File(System.getProperty("java.io.tmpdir"), "dynagent-" + System.getProperty("user.name", "user") + ".sock").getPath();
+
+		} catch (final SecurityException inaccessible) {
+
+			return null; // If we can't check it
+		}
+	}
+
+	private static String findPid() {
+
+		try {
+
+			return valueOf(current().pid()); // Find current PID
+
+		} catch (final UnsupportedOperationException | SecurityException inaccessible) {
+
+			return null; // If something went wrong
+		}
+	}
+
+	private static String buildAgent() {
+
+		try {
+
+			forName("com.github.justhm228.dynagent.internal.agent.DynagentImpl");
+
+		} catch (final ClassNotFoundException unavailable) {
+
+			return null;
+		}
+
+		final String prebuilt = findPrebuilt("dynagent", "agent");
+
+		if (prebuilt != null) {
+
+			return prebuilt; // If the library is packaged with a prebuilt javaagent
+		}
+
+		final String classname = DynagentImpl.class.getTypeName();
+
+		// A single jar file is both a javaagent and an installer (which loads the same jar file as a javaagent):
+		final Manifest manifest = new Manifest();
+
+		{
+
+			final Attributes attributes = manifest.getMainAttributes();
+
+			attributes.put(MANIFEST_VERSION, "1.0"); // Manifest-Version: 1.0
+			attributes.put(MAIN_CLASS, DynagentInstaller.class.getTypeName()); // Main-Class: com.github.justhm228.dynagent.internal.agent.DynagentInstaller
+			attributes.put(new Name("Premain-Class"), classname); // Premain-Class: com.github.justhm228.dynagent.internal.agent.DynagentImpl
+			attributes.put(new Name("Agent-Class"), classname); // Agent-Class: com.github.justhm228.dynagent.internal.agent.DynagentImpl
+			attributes.put(new Name("Can-Retransform-Classes"), "true"); // Can-Retransform-Classes: true
+			attributes.put(new Name("Can-Redefine-Classes"), "true"); // Can-Redefine-Classes: true
+			attributes.put(new Name("Can-Set-Native-Method-Prefix"), "true"); // Can-Set-Native-Method-Prefix: true
+			attributes.put(SPECIFICATION_TITLE, Library.NAME); // Specification-Title: Dynagent
+			attributes.put(SPECIFICATION_VERSION, Library.VERSION); // Specification-Version: 0.1-build.1
+			attributes.put(SPECIFICATION_VENDOR, Library.AUTHOR); // Specification-Vendor: JustHuman228
+			attributes.put(IMPLEMENTATION_TITLE, Library.INTERNAL_NAME); // Implementation-Title: dynagent
+			attributes.put(IMPLEMENTATION_VERSION, Library.VERSION); // Implementation-Version: 0.1-build.1
+			attributes.put(IMPLEMENTATION_VENDOR, Library.AUTHOR); // Implementation-Vendor: JustHuman228
+		}
+
+		return buildJar("dynagent", manifest, DynagentImpl.class, DynagentInstaller.class);
+	}
+
+	private static String buildJar(final String prefix, final Manifest manifest, final Class<?>... classes) {
+
+		final Map<String, byte[]> entries = new LinkedHashMap<>(classes.length);
+
+		for (final Class<?> type : classes) {
+
+			final String resource = type.getTypeName().replace('.', '/') + ".class"; // A zip path of a class in a jar file
+
+			// Read a class:
+			try (final InputStream in = type.getResourceAsStream("/" + resource)) {
+
+				if (in == null) {
+
+					return null; // If a class isn't accessible
+				}
+
+				entries.put(resource, in.readAllBytes());
+
+			} catch (final IOException failed) {
+
+				return null; // If something went wrong
+			}
+		}
+
+		// Reuse a cached jar file if possible (it's much cheaper than writing a new one every time):
+		final String cached = FileCache.get(prefix, manifest, entries);
+
+		if (cached != null) {
+
+			return cached;
+		}
+
+		try {
+
+			final File jar = FileStorage.createTempFile(prefix, ".jar"); // Generate a temporary file (preferably in memory)
+
+			// Write a jar file:
+			try (final OutputStream out = new FileOutputStream(jar)) {
+
+				FileCache.write(out, manifest, entries);
+			}
+
+			return jar.getPath(); // If build is successfully ended
+
+		} catch (final SecurityException | IOException failed) {
+
+			return null; // If something went wrong
+		}
+	}
+
+	private static String findPrebuilt(final String prefix, final String classifier) {
+
+		// A jar file prebuilt while packaging the library (see `pom.xml`), so it's just copied as is:
+		final String resource = "/META-INF/dynagent/" + Library.INTERNAL_NAME + "-" + Library.VERSION + "-" + classifier + ".jar";
+
+		final byte[] bytes;
+
+		try (final InputStream in = DynagentInstaller.class.getResourceAsStream(resource)) {
+
+			if (in == null) {
+
+				return null; // If the library isn't packaged with prebuilt jar files (or it's packaged for another version)
+			}
+
+			bytes = in.readAllBytes();
+
+			// It goes stale when the classes are recompiled without packaging (e.g. by an IDE), so it's only used if its classes are the current ones:
+			try (final JarInputStream jar = new JarInputStream(new ByteArrayInputStream(bytes))) {
+
+				for (JarEntry entry = jar.getNextJarEntry(); entry != null; entry = jar.getNextJarEntry()) {
+
+					if (entry.getName().endsWith(".class")) {
+
+						try (final InputStream current = DynagentInstaller.class.getResourceAsStream("/" + entry.getName())) {
+
+							if (current == null || !Arrays.equals(current.readAllBytes(), jar.readAllBytes())) {
+
+								return null; // If it's stale (so the javaagent is built from the current classes)
+							}
+						}
+					}
+				}
+			}
+
+		} catch (final IOException failed) {
+
+			return null; // If something went wrong
+		}
+
+		final String cached = FileCache.get(prefix, bytes);
+
+		if (cached != null) {
+
+			return cached;
+		}
+
+		try {
+
+			final File jar = FileStorage.createTempFile(prefix, ".jar"); // Generate a temporary file (preferably in memory)
+
+			// Copy a jar file:
+			try (final OutputStream out = new FileOutputStream(jar)) {
+
+				out.write(bytes);
+			}
+
+			return jar.getPath();
+
+		} catch (final SecurityException | IOException failed) {
 
 			return null; // If something went wrong
 		}
@@ -0,0 +1,51 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.internal.agent;
+
+import jdk.jfr.*;
+
+/**
+ * A JFR event of a single phase of a Dynagent installation.
+ *
+ * @see InstallRecorder
+ */
+@Name(value = "dynagent.InstallPhase")
+@Label(value = "Dynagent Install Phase")
+@Description(value = "A single phase of a dynamic installation of Dynagent")
+@Category(value = "Dynagent")
+@StackTrace(value = false)
+final class InstallPhaseEvent extends Event {
+
+	@Label(value = "Phase")
+	String phase;
+
+	@Label(value = "Succeeded")
+	boolean succeeded;
+
+	InstallPhaseEvent() {
+
+		super();
+	}
+}
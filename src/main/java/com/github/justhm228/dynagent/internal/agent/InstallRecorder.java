@@ -0,0 +1,250 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.internal.agent;
+
+import com.github.justhm228.dynagent.agent.*;
+import java.util.*;
+import java.util.concurrent.locks.*;
+import java.util.function.*;
+import jdk.jfr.*;
+
+/**
+ * Records timings and a failure cause of a single Dynagent installation.
+ *
+ * <p>
+ *     Every installation attempt creates a new recorder (see {@link #begin()}), which becomes the
+ *     {@linkplain #getLast() last recorder}. Every phase is timed with {@link System#nanoTime()} and emitted as an
+ *     {@link InstallPhaseEvent}, and the whole installation is emitted as an {@link InstallEvent}. JFR events are
+ *     only emitted if JFR is already initialized (i.e. something is being recorded), because the first JFR event
+ *     costs hundreds of milliseconds otherwise.
+ * </p>
+ *
+ * <p>
+ *     <b>Note:</b> this class is never loaded by the temporary installer process, so it's not a part of its jar file.
+ * </p>
+ *
+ * @see InstallReport
+ */
+public final class InstallRecorder {
+
+	private static volatile InstallRecorder last = null; // A recorder of the last installation
+
+	private final long start = System.nanoTime();
+
+	private final Lock recording = new ReentrantLock(); // Phases may be recorded by several (maybe virtual) threads
+
+	private final Map<String, Long> phases = new LinkedHashMap<>(16); // Guarded by `recording`
+
+	private final InstallEvent event = FlightRecorder.isInitialized() ? new InstallEvent() : null; // Null if JFR isn't used
+
+	private volatile String cause = null;
+
+	private volatile String output = null; // Non-null only if a temporary installer was launched
+
+	private volatile InstallReport report = null; // Non-null when the installation is ended
+
+	private InstallRecorder() {
+
+		super();
+
+		if (event != null) {
+
+			event.begin();
+		}
+	}
+
+	/**
+	 * Starts recording a new installation.
+	 *
+	 * @return A recorder of the new installation (it's the last recorder now).
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public static InstallRecorder begin() {
+
+		return last = new InstallRecorder();
+	}
+
+	/**
+	 * Returns a recorder of the last installation.
+	 *
+	 * @return A recorder of the last installation, or null if nothing was installed dynamically yet.
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public static InstallRecorder getLast() {
+
+		return last;
+	}
+
+	/**
+	 * Runs the specified action as a phase of the installation and records its timing.
+	 *
+	 * @param name A name of the phase.
+	 * @param action An action to be run.
+	 * @param <T> A type of the action result.
+	 * @return The action result.
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public <T> T phase(final String name, final Supplier<T> action) {
+
+		final InstallPhaseEvent phase = event != null ? new InstallPhaseEvent() : null; // Null if JFR isn't used
+
+		if (phase != null) {
+
+			phase.begin();
+		}
+
+		final long begin = System.nanoTime();
+
+		T result = null;
+
+		try {
+
+			return result = action.get();
+
+		} finally {
+
+			record(name, System.nanoTime() - begin);
+
+			if (phase != null) {
+
+				phase.phase = name;
+				phase.succeeded = result instanceof final Boolean succeeded ? succeeded : result != null;
+				phase.commit();
+			}
+		}
+	}
+
+	/**
+	 * Records the timing of a phase of the installation which was measured somewhere else.
+	 *
+	 * @param name A name of the phase.
+	 * @param nanos A duration of the phase (in nanoseconds).
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public void record(final String name, final long nanos) {
+
+		recording.lock();
+
+		try {
+
+			phases.merge(name, nanos, Long::sum);
+
+		} finally {
+
+			recording.unlock();
+		}
+	}
+
+	/**
+	 * Records why the installation (or a single way to install it) failed.
+	 *
+	 * @param cause A description of the failure.
+	 * @return Always false (so it can be returned by a failed step right away).
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public boolean fail(final String cause) {
+
+		this.cause = cause;
+		return false;
+	}
+
+	/**
+	 * Records the output of a temporary installer process.
+	 *
+	 * @param output The output of the installer (both stdout and stderr).
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public void output(final String output) {
+
+		this.output = output;
+	}
+
+	/**
+	 * Ends recording the installation (only the first call has any effect).
+	 *
+	 * @param installed Whether Dynagent was installed.
+	 * @param method A name of {@link InstallMethod} constant, or null if Dynagent wasn't installed.
+	 * @return The same value as {@code installed}.
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public boolean end(final boolean installed, final String method) {
+
+		end(installed ? InstallOutcome.INSTALLED : InstallOutcome.FAILED, installed ? method : null);
+		return installed;
+	}
+
+	/**
+	 * Ends recording the installation because its deadline expired (only the first call to {@code end()} or
+	 * {@code expire()} has any effect).
+	 *
+	 * @param cause A description of what the installation was still waiting for.
+	 * @return Always false (so it can be returned by a timed installation right away).
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public boolean expire(final String cause) {
+
+		this.cause = cause;
+		end(InstallOutcome.TIMED_OUT, null);
+		return false;
+	}
+
+	private void end(final InstallOutcome outcome, final String method) {
+
+		recording.lock();
+
+		try {
+
+			if (report != null) {
+
+				return; // Already ended
+			}
+
+			report = new InstallReport(outcome, method != null ? InstallMethod.valueOf(method) : null, System.nanoTime() - start, phases, outcome == InstallOutcome.INSTALLED ? null : cause, output);
+
+		} finally {
+
+			recording.unlock();
+		}
+
+		if (event != null) {
+
+			event.outcome = report.outcome().name();
+			event.method = report.method() == null ? null : report.method().name();
+			event.cause = report.cause();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Returns a report of the installation.
+	 *
+	 * @return A report of the installation, or null if it isn't ended yet.
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public InstallReport getReport() {
+
+		return report;
+	}
+}
@@ -0,0 +1,321 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.internal.agent;
+
+import java.lang.ref.*;
+import java.util.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * A set of rules which allow classes to use Dynagent: single classes, whole modules and packages (with their
+ * subpackages) of a module.
+ *
+ * <p>
+ *     The whitelist is checked on every call of the stable API, so checks never take a lock: rules are kept in
+ *     an immutable snapshot which is replaced (copy-on-write) when any rule is added, and every snapshot memoizes
+ *     the result of a check per class in its own {@link ClassValue}. So a repeated check is a lock-free read which
+ *     doesn't depend on how many rules there are, and a new snapshot never sees a stale result of an old one.
+ * </p>
+ *
+ * <p>
+ *     Packages are always whitelisted within a module: a class from another module (or from another class
+ *     loader, which has its own unnamed module) isn't whitelisted even if its package has the same name.
+ * </p>
+ *
+ * <p>
+ *     The whitelist never keeps a whitelisted class, module or class loader reachable: a whitelisted class is
+ *     marked in its own {@link ClassValue} map (which is collected together with the class), modules are only
+ *     referenced weakly (and rules of collected modules are dropped on the next change), and memoized results
+ *     are stored by classes themselves. So a redeployed application can still be unloaded with its class loader.
+ * </p>
+ *
+ * <p>
+ *     <b>Note:</b> this class is never loaded by the temporary installer process, so it's not a part of its jar file.
+ * </p>
+ */
+public final class Whitelist {
+
+	private final Lock writing = new ReentrantLock(); // Only taken by (rare) changes of the whitelist
+
+	private final Grants grants = new Grants(); // Marks of whitelisted classes
+
+	private volatile Permissions permissions = new Permissions(grants, List.of(), List.of()); // Replaced, never modified
+
+	/**
+	 * Creates an empty whitelist.
+	 *
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public Whitelist() {
+
+		super();
+	}
+
+	/**
+	 * Checks if the specified class is whitelisted.
+	 *
+	 * @param type A class to be checked.
+	 * @return true if the class is whitelisted; otherwise - false.
+	 * @throws NullPointerException If the class is null.
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public boolean contains(final Class<?> type) throws NullPointerException {
+
+		return permissions.get(type);
+	}
+
+	/**
+	 * Whitelists the specified class.
+	 *
+	 * @param type A class to be whitelisted.
+	 * @throws NullPointerException If the class is null.
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public void add(final Class<?> type) throws NullPointerException {
+
+		addAll(List.of(type));
+	}
+
+	/**
+	 * Whitelists all the specified classes.
+	 *
+	 * @param types Classes to be whitelisted.
+	 * @throws NullPointerException If the collection (or any class in it) is null.
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public void addAll(final Collection<? extends Class<?>> types) throws NullPointerException {
+
+		final List<Class<?>> added = List.copyOf(types); // Also checks every class for nullability
+
+		if (added.isEmpty()) {
+
+			return; // Nothing to whitelist
+		}
+
+		writing.lock();
+
+		try {
+
+			for (final Class<?> type : added) {
+
+				grants.grant(type);
+			}
+
+			final Permissions current = permissions;
+
+			permissions = new Permissions(grants, expunge(current.modules), expunge(current.packages)); // Forget memoized refusals
+
+		} finally {
+
+			writing.unlock();
+		}
+	}
+
+	/**
+	 * Whitelists all classes of the specified modules.
+	 *
+	 * @param modules Modules to be whitelisted.
+	 * @throws NullPointerException If the collection (or any module in it) is null.
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public void addModules(final Collection<Module> modules) throws NullPointerException {
+
+		final List<Module> added = List.copyOf(modules); // Also checks every module for nullability
+
+		if (added.isEmpty()) {
+
+			return; // Nothing to whitelist
+		}
+
+		writing.lock();
+
+		try {
+
+			final Permissions current = permissions;
+			final List<WeakReference<Module>> updated = new ArrayList<>(expunge(current.modules));
+
+			for (final Module module : added) {
+
+				updated.add(new WeakReference<>(module));
+			}
+
+			permissions = new Permissions(grants, List.copyOf(updated), expunge(current.packages));
+
+		} finally {
+
+			writing.unlock();
+		}
+	}
+
+	/**
+	 * Whitelists all classes of the specified packages (and their subpackages) of the specified module.
+	 *
+	 * @param module A module which contains the packages.
+	 * @param packages Names of the packages to be whitelisted (e.g. {@code "com.example"} also whitelists
+	 *                 {@code "com.example.internal"}, but not {@code "com.examples"}).
+	 * @throws NullPointerException If the module, the collection or any name in it is null.
+	 * @throws IllegalArgumentException If any name is empty (use {@link #addModules(Collection)} to whitelist a
+	 *                                  whole module).
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public void addPackages(final Module module, final Collection<String> packages) throws NullPointerException, IllegalArgumentException {
+
+		Objects.requireNonNull(module);
+
+		final List<String> added = List.copyOf(packages); // Also checks every name for nullability
+
+		if (added.contains("")) {
+
+			throw new IllegalArgumentException("An empty package name would whitelist the whole module"); // The unnamed package isn't a parent of every package
+		}
+
+		if (added.isEmpty()) {
+
+			return; // Nothing to whitelist
+		}
+
+		writing.lock();
+
+		try {
+
+			final Permissions current = permissions;
+			final List<Packages> updated = new ArrayList<>(expunge(current.packages));
+
+			updated.add(new Packages(new WeakReference<>(module), Set.copyOf(added)));
+			permissions = new Permissions(grants, expunge(current.modules), List.copyOf(updated));
+
+		} finally {
+
+			writing.unlock();
+		}
+	}
+
+	private static List<WeakReference<Module>> expunge(final List<WeakReference<Module>> modules) {
+
+		return modules.stream().filter((module) -> module.get() != null).toList(); // Drop rules of collected modules
+	}
+
+	private static List<Packages> expunge(final Collection<Packages> packages) {
+
+		return packages.stream().filter((rule) -> rule.module.get() != null).toList(); // Drop rules of collected modules
+	}
+
+	private record Packages(WeakReference<Module> module, Set<String> names) {
+
+		// Names of whitelisted packages of a module
+	}
+
+	private static final class Grants extends ClassValue<Boolean> {
+
+		private volatile Class<?> granting = null; // A class which is being whitelisted right now
+
+		private Grants() {
+
+			super();
+		}
+
+		@Override()
+		protected Boolean computeValue(final Class<?> type) {
+
+			return type == granting;
+		}
+
+		private void grant(final Class<?> type) {
+
+			granting = type;
+
+			try {
+
+				// A refusal could be computed concurrently before the class was being whitelisted, so repeat until it's marked:
+				do {
+
+					remove(type);
+
+				} while (!get(type));
+
+			} finally {
+
+				granting = null;
+			}
+		}
+	}
+
+	private static final class Permissions extends ClassValue<Boolean> {
+
+		private final Grants grants;
+
+		private final List<WeakReference<Module>> modules;
+
+		private final List<Packages> packages;
+
+		private Permissions(final Grants grants, final List<WeakReference<Module>> modules, final List<Packages> packages) {
+
+			super();
+			this.grants = grants;
+			this.modules = modules;
+			this.packages = packages;
+		}
+
+		@Override()
+		protected Boolean computeValue(final Class<?> type) {
+
+			// Resolved once per class (so the number of rules doesn't matter for a repeated check):
+			if (grants.get(type)) {
+
+				return true;
+			}
+
+			final Module module = type.getModule();
+
+			for (final WeakReference<Module> granted : modules) {
+
+				if (granted.get() == module) {
+
+					return true; // If it's a class of a whitelisted module
+				}
+			}
+
+			final String name = type.getPackageName();
+
+			for (final Packages rule : packages) {
+
+				if (rule.module.get() != module) {
+
+					continue; // Packages are only whitelisted within their module
+				}
+
+				for (final String granted : rule.names) {
+
+					if (name.equals(granted) || name.startsWith(granted) && name.charAt(granted.length()) == '.') {
+
+						return true; // If it's a whitelisted package or its subpackage
+					}
+				}
+			}
+
+			return false;
+		}
+	}
+}
@@ -0,0 +1,370 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.internal.file;
+
+import com.github.justhm228.dynagent.base.*;
+import java.io.*;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.nio.file.*;
+import java.nio.file.attribute.*;
+import static java.nio.file.StandardCopyOption.*;
+import java.security.*;
+import java.util.*;
+import java.util.jar.*;
+import java.util.regex.*;
+
+public final class FileCache {
+
+	private static final long TIME = 315532800000L + 86400000L; // 1980-01-02 (the earliest time a zip file supports, plus a day for any timezone)
+
+	private static final long STALE = 30L * 86400000L; // How long an entry which wasn't used is kept (30 days)
+
+	private static final Pattern ENTRY = Pattern.compile(".+-[0-9a-f]{32}\\.(jar|jsa|jsa\\.lock)"); // A name of a cached jar file (or of its class-data sharing archive, or of a lock of its creation)
+
+	private FileCache() throws UnsupportedOperationException {
+
+		super();
+		throw new UnsupportedOperationException("An instance of this type (" + getClass().getTypeName() + ") can't be instantiated with a constructor!");
+	}
+
+	/**
+	 * Returns a cached jar file with the specified manifest and the specified entries, creating it if needed.
+	 *
+	 * <p>
+	 *     A cached jar file is named after {@link Library#VERSION} and a hash of its content, so it's reused by
+	 *     every later call (even from another JVM) with the same content. It's verified before every reuse, and it's
+	 *     rewritten if it doesn't match the expected content. Cached jar files aren't temporary files, so they
+	 *     shouldn't be deleted after use.
+	 * </p>
+	 *
+	 * <p>
+	 *     Every new version (or content) of a jar file gets a new name, so the cache would grow forever. To prevent
+	 *     it, every time a new jar file is written, entries which weren't used for 30 days (along with their
+	 *     class-data sharing archives and leftover temporary files) are deleted. Every reuse of an entry updates its
+	 *     last modified time (and the ones of its class-data sharing archive and its lock), so an entry which is still used isn't
+	 *     deleted by another JVM while it's being used. The whole cache directory can also be deleted at any time
+	 *     when no JVM is installing Dynagent.
+	 * </p>
+	 *
+	 * @param prefix A prefix of the jar file name.
+	 * @param manifest A manifest of the jar file.
+	 * @param entries Zip paths and contents of entries of the jar file (in the order they should be written).
+	 * @return A path to the cached jar file, or null if the cache is disabled or unavailable.
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public static String get(final String prefix, final Manifest manifest, final Map<String, byte[]> entries) {
+
+		if (prefix == null || manifest == null || entries == null) {
+
+			return null;
+		}
+
+		if (getDirectory() == null) {
+
+			return null; // If the cache is disabled or unavailable (don't build anything then)
+		}
+
+		// A jar file is built in memory (it's cheap), so it can be compared with the cached one byte-by-byte:
+		final ByteArrayOutputStream expected = new ByteArrayOutputStream(16384);
+
+		try {
+
+			write(expected, manifest, entries);
+
+		} catch (final IOException failed) {
+
+			return null; // If something went wrong
+		}
+
+		return get(prefix, expected.toByteArray());
+	}
+
+	/**
+	 * Returns a cached jar file with the specified content, creating it if needed.
+	 *
+	 * <p>
+	 *     This method is the same as {@link #get(String, Manifest, Map)}, but it accepts a content of the
+	 *     whole jar file which is already built (e.g. a prebuilt jar file shipped as a resource).
+	 * </p>
+	 *
+	 * @param prefix A prefix of the jar file name.
+	 * @param bytes A content of the whole jar file.
+	 * @return A path to the cached jar file, or null if the cache is disabled or unavailable.
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public static String get(final String prefix, final byte[] bytes) {
+
+		if (prefix == null || bytes == null) {
+
+			return null;
+		}
+
+		final Path directory = getDirectory();
+
+		if (directory == null) {
+
+			return null; // If the cache is disabled or unavailable
+		}
+
+		try {
+
+			final Path jar = directory.resolve(prefix + "-" + Library.VERSION + "-" + hash(bytes) + ".jar");
+
+			if (verify(jar, bytes)) {
+
+				touch(jar); // Keep it from being cleaned up by another JVM
+				return jar.toString(); // Reuse a valid jar file
+			}
+
+			// Write a new jar file and atomically replace an invalid one (if any):
+			final Path temporary = Files.createTempFile(directory, prefix, ".tmp");
+
+			try {
+
+				Files.write(temporary, bytes);
+				Files.move(temporary, jar, ATOMIC_MOVE, REPLACE_EXISTING);
+
+			} finally {
+
+				Files.deleteIfExists(temporary);
+			}
+
+			clean(directory, prefix, jar); // Only a cache miss pays for a clean-up
+
+			return jar.toString();
+
+		} catch (final IOException | UnsupportedOperationException | SecurityException | InvalidPathException failed) {
+
+			return null; // If something went wrong
+		}
+	}
+
+	/**
+	 * Checks if the specified file is stored in the cache (so it mustn't be deleted after use).
+	 *
+	 * @param file A path to the file to be checked.
+	 * @return true if the specified file is stored in the cache; otherwise - false.
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public static boolean contains(final String file) {
+
+		if (file == null) {
+
+			return false;
+		}
+
+		final Path directory = getDirectory();
+
+		try {
+
+			return directory != null && directory.equals(Path.of(file).toAbsolutePath().getParent());
+
+		} catch (final InvalidPathException | IOError | SecurityException invalid) {
+
+			return false;
+		}
+	}
+
+	/**
+	 * Writes a jar file with the specified manifest and the specified entries to the specified stream.
+	 *
+	 * @param out A stream to write the jar file to.
+	 * @param manifest A manifest of the jar file.
+	 * @param entries Zip paths and contents of entries of the jar file (in the order they should be written).
+	 * @throws IOException If something went wrong while writing.
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public static void write(final OutputStream out, final Manifest manifest, final Map<String, byte[]> entries) throws IOException {
+
+		// Every entry has the same time, so the same content always produces the same jar file:
+		try (final JarOutputStream jar = new JarOutputStream(out)) {
+
+			jar.putNextEntry(entry(JarFile.MANIFEST_NAME));
+			manifest.write(jar); // Write a manifest file
+			jar.closeEntry();
+
+			final Set<String> packages = new HashSet<>(); // Packages which are already written
+
+			for (final Map.Entry<String, byte[]> entry : entries.entrySet()) {
+
+				final String name = entry.getKey();
+
+				// Write packages to a jar file:
+				for (int i = name.indexOf('/'); i >= 0; i = name.indexOf('/', i + 1)) {
+
+					final String path = name.substring(0, i + 1);
+
+					if (packages.add(path)) {
+
+						jar.putNextEntry(entry(path)); // Write a package to a jar file
+						jar.closeEntry();
+					}
+				}
+
+				// Write the entry itself:
+				jar.putNextEntry(entry(name));
+				jar.write(entry.getValue());
+				jar.closeEntry();
+			}
+		}
+	}
+
+	private static Path getDirectory() {
+
+		try {
+
+			// "false" disables the cache, any other value is a path to the cache directory:
+			final String configured = System.getProperty("dynagent.cache");
+
+			if (configured != null && configured.trim().equalsIgnoreCase("false")) {
+
+				return null;
+			}
+
+			final Path directory = (configured == null || configured.isBlank() ? FileStorage.getDirectory().resolve("dynagent-cache-" + System.getProperty("user.name", "user")) : Path.of(configured)).toAbsolutePath();
+
+			if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+
+				try {
+
+					// Only the current user should be able to modify the cached files:
+					Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+
+				} catch (final UnsupportedOperationException notPosix) {
+
+					Files.createDirectories(directory);
+				}
+			}
+
+			return isPrivate(directory) ? directory : null; // Don't trust a directory which can be modified by others
+
+		} catch (final IOException | IOError | InvalidPathException | SecurityException | UnsupportedOperationException unavailable) {
+
+			return null;
+		}
+	}
+
+	private static void clean(final Path directory, final String prefix, final Path written) {
+
+		final long stale = System.currentTimeMillis() - STALE;
+
+		try (final DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+
+			for (final Path file : files) {
+
+				final String name = file.getFileName().toString();
+
+				// Only delete files which look like cache entries (the directory could be chosen by a user):
+				if (!file.equals(written) && (ENTRY.matcher(name).matches() || name.startsWith(prefix) && name.endsWith(".tmp")) && Files.getLastModifiedTime(file, LinkOption.NOFOLLOW_LINKS).toMillis() < stale) {
+
+					Files.deleteIfExists(file);
+				}
+			}
+
+		} catch (final IOException | DirectoryIteratorException | SecurityException failed) {
+
+			// A clean-up isn't required, so just try again later
+		}
+	}
+
+	private static void touch(final Path jar) {
+
+		final FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+
+		final String name = jar.getFileName().toString();
+
+		final String base = name.substring(0, name.length() - ".jar".length());
+
+		for (final Path file : List.of(jar, jar.resolveSibling(base + ".jsa"), jar.resolveSibling(base + ".jsa.lock"))) {
+
+			try {
+
+				Files.setLastModifiedTime(file, now);
+
+			} catch (final IOException | SecurityException failed) {
+
+				// There's no archive yet (or the time can't be updated), so the entry is just written again if it's deleted
+			}
+		}
+	}
+
+	private static boolean isPrivate(final Path directory) throws IOException {
+
+		final PosixFileAttributeView view = Files.getFileAttributeView(directory, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+
+		if (view == null) {
+
+			return true; // There's nothing to check on a non-POSIX file system
+		}
+
+		final PosixFileAttributes attributes = view.readAttributes();
+
+		final Set<PosixFilePermission> permissions = attributes.permissions();
+
+		return attributes.owner().getName().equals(System.getProperty("user.name")) && !permissions.contains(PosixFilePermission.GROUP_WRITE) && !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+	}
+
+	private static boolean verify(final Path jar, final byte[] expected) {
+
+		try {
+
+			if (!Files.isRegularFile(jar, LinkOption.NOFOLLOW_LINKS) || Files.size(jar) != expected.length) {
+
+				return false; // If there's no such jar file (or it's obviously invalid)
+			}
+
+			return Arrays.equals(expected, Files.readAllBytes(jar)); // If the jar file wasn't changed
+
+		} catch (final IOException | SecurityException | OutOfMemoryError invalid) {
+
+			return false; // If the file can't be read
+		}
+	}
+
+	private static String hash(final byte[] content) throws IOException {
+
+		try {
+
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+			digest.update(Library.VERSION.getBytes(UTF_8));
+			digest.update(content);
+
+			return HexFormat.of().formatHex(digest.digest(), 0, 16); // 128 bits are enough for a file name
+
+		} catch (final NoSuchAlgorithmException unavailable) {
+
+			throw new IOException(unavailable);
+		}
+	}
+
+	private static JarEntry entry(final String name) {
+
+		final JarEntry entry = new JarEntry(name);
+
+		entry.setTime(TIME);
+		return entry;
+	}
+}
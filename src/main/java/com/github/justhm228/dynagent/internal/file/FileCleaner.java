@@ -27,12 +27,13 @@ package com.github.justhm228.dynagent.internal.file;
 import java.io.*;
 import static java.lang.Runtime.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 public final class FileCleaner {
 
 	private static final Thread HOOK = new Thread(FileCleaner::cleanup, "Dynagent Cleaner");
 
-	private static final List<File> TARGETS = new ArrayList<>(1);
+	private static final Set<File> TARGETS = ConcurrentHashMap.newKeySet(1); // Changed without any lock (so it never pins a virtual thread)
 
 	private FileCleaner() throws UnsupportedOperationException {
 
@@ -74,10 +75,7 @@ public final class FileCleaner {
 			return;
 		}
 
-		synchronized (TARGETS) {
-
-			TARGETS.add(target.getAbsoluteFile());
-		}
+		TARGETS.add(target.getAbsoluteFile());
 	}
 
 	public static void addTarget(final String target) {
@@ -87,17 +85,14 @@ public final class FileCleaner {
 
 	public static void cleanup() {
 
-		synchronized (TARGETS) {
-
-			for (final File target : TARGETS) {
+		for (final File target : TARGETS) {
 
-				try {
+			try {
 
-					final boolean ignored = target.delete();
+				final boolean ignored = target.delete();
 
-				} catch (final SecurityException ignored) {
+			} catch (final SecurityException ignored) {
 
-				}
 			}
 		}
 	}
@@ -109,15 +104,12 @@ public final class FileCleaner {
 			return;
 		}
 
-		synchronized (TARGETS) {
+		{
 
-			{
-
-				final boolean ignored = (target = target.getAbsoluteFile()).delete();
-			}
-
-			TARGETS.remove(target);
+			final boolean ignored = (target = target.getAbsoluteFile()).delete();
 		}
+
+		TARGETS.remove(target);
 	}
 
 	public static void clean(final String target) {
@@ -132,10 +124,7 @@ public final class FileCleaner {
 			return;
 		}
 
-		synchronized (TARGETS) {
-
-			TARGETS.remove(target.getAbsoluteFile());
-		}
+		TARGETS.remove(target.getAbsoluteFile());
 	}
 
 	public static void removeTarget(final String target) {
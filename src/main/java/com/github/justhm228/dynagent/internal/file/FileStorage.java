@@ -0,0 +1,194 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.internal.file;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+public final class FileStorage {
+
+	private static final String[] MEMORY = { "/dev/shm", "/run/shm" }; // Usual memory-backed directories on Linux
+
+	private static final Path MEMORY_DIRECTORY = findMemoryDirectory(); // It can't change while the JVM is running
+
+	private FileStorage() throws UnsupportedOperationException {
+
+		super();
+		throw new UnsupportedOperationException("An instance of this type (" + getClass().getTypeName() + ") can't be instantiated with a constructor!");
+	}
+
+	/**
+	 * Creates a new temporary file in the {@linkplain #getDirectory() storage directory}.
+	 *
+	 * <p>
+	 *     The created file is deleted on JVM shutdown (via {@link FileCleaner} if possible). If the file can't be
+	 *     created in the storage directory, it's created in the default temporary directory instead.
+	 * </p>
+	 *
+	 * @param prefix A prefix of the file name.
+	 * @param suffix A suffix of the file name.
+	 * @return The created file.
+	 * @throws IOException If the file can't be created.
+	 * @throws SecurityException If the file can't be created because of a security manager.
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public static File createTempFile(final String prefix, final String suffix) throws IOException, SecurityException {
+
+		final Path directory = getDirectory();
+
+		File file;
+
+		try {
+
+			file = File.createTempFile(prefix, suffix, directory.toFile()).getAbsoluteFile();
+
+		} catch (final IOException failed) {
+
+			if (directory.equals(getDefaultDirectory())) {
+
+				throw failed;
+			}
+
+			file = File.createTempFile(prefix, suffix).getAbsoluteFile(); // If the storage directory is full or read-only
+		}
+
+		if (FileCleaner.install()) { // If we can delete the file safely:
+
+			FileCleaner.addTarget(file); // Add it as a target to "safe deletion algorithm"
+
+		} else { // Or else...
+
+			file.deleteOnExit(); // Use Java's built-in "deletion on exit algorithm"
+		}
+
+		return file;
+	}
+
+	/**
+	 * Returns a directory where Dynagent stores its files.
+	 *
+	 * <p>
+	 *     It's a directory specified with the {@code dynagent.tmpdir} system property if it's set, or a
+	 *     memory-backed directory (like {@code /dev/shm}) if it's present and writable, or the default temporary
+	 *     directory ({@code java.io.tmpdir}) otherwise.
+	 * </p>
+	 *
+	 * @return A path to the storage directory.
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public static Path getDirectory() {
+
+		try {
+
+			final String configured = System.getProperty("dynagent.tmpdir");
+
+			if (configured != null && !configured.isBlank()) {
+
+				final Path directory = Path.of(configured).toAbsolutePath();
+
+				Files.createDirectories(directory);
+
+				return directory;
+			}
+
+		} catch (final IOException | IOError | InvalidPathException | SecurityException | UnsupportedOperationException invalid) {
+
+			return getDefaultDirectory(); // If the configured directory can't be used
+		}
+
+		return MEMORY_DIRECTORY != null ? MEMORY_DIRECTORY : getDefaultDirectory();
+	}
+
+	/**
+	 * Checks if the specified directory is backed by memory (i.e. it's stored on {@code tmpfs} or {@code ramfs}).
+	 *
+	 * @param directory A path to the directory to be checked.
+	 * @return true if the specified directory is backed by memory; otherwise - false.
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public static boolean isMemoryBacked(final Path directory) {
+
+		if (directory == null) {
+
+			return false;
+		}
+
+		try {
+
+			final String type = Files.getFileStore(directory).type();
+
+			return type.equals("tmpfs") || type.equals("ramfs");
+
+		} catch (final IOException | SecurityException unknown) {
+
+			return false;
+		}
+	}
+
+	private static Path getDefaultDirectory() {
+
+		return Path.of(System.getProperty("java.io.tmpdir")).toAbsolutePath();
+	}
+
+	private static Path findMemoryDirectory() {
+
+		try {
+
+			if (!System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("linux")) {
+
+				return null; // Only Linux has well-known memory-backed directories
+			}
+
+			final List<String> candidates = new ArrayList<>(Arrays.asList(MEMORY));
+
+			{
+
+				final String runtime = System.getenv("XDG_RUNTIME_DIR"); // A private memory-backed directory of the current user
+
+				if (runtime != null && !runtime.isBlank()) {
+
+					candidates.add(runtime);
+				}
+			}
+
+			for (final String candidate : candidates) {
+
+				final Path directory = Path.of(candidate);
+
+				if (Files.isDirectory(directory) && Files.isWritable(directory) && isMemoryBacked(directory)) {
+
+					return directory.toRealPath();
+				}
+			}
+
+		} catch (final IOException | InvalidPathException | SecurityException unavailable) {
+
+			return null;
+		}
+
+		return null; // If there's no memory-backed directory
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.internal.memory;
+
+import java.util.concurrent.locks.*;
+
+/**
+ * A thread-safe set of objects compared by identity, which doesn't allocate anything per object.
+ *
+ * <p>
+ *     Objects are spread over several stripes by their identity hash codes, and every stripe is an
+ *     {@link IdentitySet} guarded by its own lock, so threads adding different objects rarely wait for each other.
+ *     Locks are {@link ReentrantLock}s (not monitors), so a waiting virtual thread is never pinned to its carrier.
+ * </p>
+ */
+final class ConcurrentIdentitySet {
+
+	private final IdentitySet[] stripes;
+
+	private final Lock[] locks;
+
+	ConcurrentIdentitySet(final int concurrency) {
+
+		super();
+
+		// At least a few stripes per thread (and always a power of two):
+		final int count = Integer.highestOneBit(Math.max(1, Math.min(concurrency, 1 << 12)) * 8 - 1) << 1;
+
+		stripes = new IdentitySet[count];
+		locks = new Lock[count];
+
+		for (int i = 0; i < count; i++) {
+
+			stripes[i] = new IdentitySet();
+			locks[i] = new ReentrantLock();
+		}
+	}
+
+	boolean add(final Object instance) throws IllegalStateException {
+
+		// The low bits of an identity hash code choose a stripe, and its (scrambled) high bits choose a slot in it:
+		final int stripe = System.identityHashCode(instance) & stripes.length - 1;
+		final Lock lock = locks[stripe];
+
+		lock.lock();
+
+		try {
+
+			return stripes[stripe].add(instance);
+
+		} finally {
+
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.internal.memory;
+
+import java.lang.instrument.*;
+import java.lang.invoke.*;
+import java.lang.ref.*;
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+ * Memoizes reference fields of a class (as {@link VarHandle}s) for walks of object graphs.
+ *
+ * <p>
+ *     A layout of a class is kept in a {@link ClassValue} of the class, so the class is reflected over only once
+ *     (and the layout is collected together with the class). It holds {@code VarHandle}s of all instance fields
+ *     which refer to objects, declared by the class and all its superclasses (a layout of a class reuses handles
+ *     of its superclass). Referents of {@link Reference}s are left out, since they aren't retained by the object.
+ * </p>
+ *
+ * <p>
+ *     Handles are bound on first use: if a package isn't open to Dynagent, it's opened once with
+ *     {@link Instrumentation#redefineModule} (a field of an unmodifiable module is skipped). So repeated walks
+ *     don't reflect over anything and don't check any access.
+ * </p>
+ *
+ * <p>
+ *     <b>Note:</b> this class is never loaded by the temporary installer process, so it's not a part of its jar file.
+ * </p>
+ */
+final class FieldLayout {
+
+	private static final Layouts LAYOUTS = new Layouts();
+
+	private static final VarHandle[] NONE = new VarHandle[0];
+
+	private final Class<?> type; // <- It's the class which holds this layout, so it doesn't keep the class reachable
+
+	private final Field[] fields; // Reference fields declared by the class itself
+
+	private volatile VarHandle[] handles = null; // Handles of reference fields of the class and its superclasses, or null if they aren't bound yet
+
+	private FieldLayout(final Class<?> type, final Field[] fields) {
+
+		super();
+
+		this.type = type;
+		this.fields = fields;
+	}
+
+	/**
+	 * Returns handles of all reference fields of instances of the specified class.
+	 *
+	 * @param agent An {@code Instrumentation} to open packages (only used on the first call for the class).
+	 * @param type A class which isn't an array.
+	 * @return Handles of reference fields (they must not be modified).
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	static VarHandle[] getHandles(final Instrumentation agent, final Class<?> type) {
+
+		final FieldLayout layout = LAYOUTS.get(type);
+
+		VarHandle[] handles = layout.handles; // <- Efficient use of `volatile` fields
+
+		if (handles == null) {
+
+			layout.handles = handles = layout.bind(agent); // A racing thread just binds the same handles
+		}
+
+		return handles;
+	}
+
+	private VarHandle[] bind(final Instrumentation agent) {
+
+		final Class<?> superclass = type.getSuperclass();
+		final VarHandle[] inherited = superclass != null ? getHandles(agent, superclass) : NONE;
+
+		if (fields.length == 0) {
+
+			return inherited;
+		}
+
+		final List<VarHandle> bound = new ArrayList<>(inherited.length + fields.length);
+
+		bound.addAll(Arrays.asList(inherited));
+
+		final MethodHandles.Lookup lookup = open(agent);
+
+		if (lookup != null) {
+
+			for (final Field field : fields) {
+
+				try {
+
+					bound.add(lookup.unreflectVarHandle(field));
+
+				} catch (final IllegalAccessException inaccessible) {
+
+					// Skip the field
+				}
+			}
+		}
+
+		return bound.toArray(NONE);
+	}
+
+	private MethodHandles.Lookup open(final Instrumentation agent) {
+
+		final Module module = type.getModule();
+		final Module dynagent = FieldLayout.class.getModule();
+		final String name = type.getPackageName();
+
+		if (!module.isOpen(name, dynagent)) {
+
+			if (!agent.isModifiableModule(module)) {
+
+				return null; // Can't be opened
+			}
+
+			agent.redefineModule(module, Set.of(), Map.of(), Map.of(name, Set.of(dynagent)), Set.of(), Map.of()); // Only once per package
+		}
+
+		dynagent.addReads(module); // A private lookup also requires Dynagent to read the module
+
+		try {
+
+			return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+
+		} catch (final IllegalAccessException | SecurityException inaccessible) {
+
+			return null;
+		}
+	}
+
+	private static final class Layouts extends ClassValue<FieldLayout> {
+
+		private Layouts() {
+
+			super();
+		}
+
+		@Override()
+		protected FieldLayout computeValue(final Class<?> type) {
+
+			final List<Field> fields = new ArrayList<>();
+
+			for (final Field field : type.getDeclaredFields()) {
+
+				if (field.getType().isPrimitive() || Modifier.isStatic(field.getModifiers())) {
+
+					continue; // Only instance fields which refer to objects
+				}
+
+				if (type == Reference.class && field.getName().equals("referent")) {
+
+					continue; // A referent isn't retained
+				}
+
+				fields.add(field);
+			}
+
+			return new FieldLayout(type, fields.toArray(new Field[0]));
+		}
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.internal.memory;
+
+import com.github.justhm228.dynagent.agent.*;
+import java.lang.instrument.*;
+import java.lang.invoke.*;
+import java.util.*;
+
+/**
+ * Finds a deep size of an object: the total shallow size of all objects reachable from it.
+ *
+ * <p>
+ *     The graph is walked iteratively with an explicit stack, so a deep graph (e.g. a long linked list) can't cause
+ *     a {@link StackOverflowError}. Every object is counted once (even if it's reachable in several ways, or if the
+ *     graph has cycles), because visited objects are kept in an {@link IdentitySet}. Static fields and referents of
+ *     {@link java.lang.ref.Reference}s aren't walked into, since they aren't retained by the object itself.
+ * </p>
+ *
+ * <p>
+ *     Fields are read through handles memoized per class by {@link FieldLayout}, so a walk only reflects over
+ *     classes which were never walked before (and opens their packages once, if it's needed).
+ * </p>
+ *
+ * <p>
+ *     A parallel walk (see {@link SizeOptions#parallel()}) is done by {@link ParallelGraphWalker}.
+ * </p>
+ *
+ * <p>
+ *     <b>Note:</b> this class is never loaded by the temporary installer process, so it's not a part of its jar file.
+ * </p>
+ *
+ * @see SizeOptions
+ */
+public final class GraphWalker {
+
+	// Objects of the JDK which are referenced from everywhere:
+	private static final Object[] SHARED = {
+			"", List.of(), Set.of(), Map.of(),
+			Collections.emptyList(), Collections.emptySet(), Collections.emptyMap(),
+			Collections.emptySortedSet(), Collections.emptySortedMap(),
+			Collections.emptyNavigableSet(), Collections.emptyNavigableMap(),
+			Optional.empty(), OptionalInt.empty(), OptionalLong.empty(), OptionalDouble.empty(),
+	};
+
+	private GraphWalker() throws UnsupportedOperationException {
+
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Returns a deep size of the specified object.
+	 *
+	 * @param agent An {@code Instrumentation} to measure objects and to open packages.
+	 * @param root An object to be measured (it's always counted, even if it's a stop or a shared object).
+	 * @param options Where to stop walking the graph.
+	 * @return The total shallow size of all objects reachable from the root.
+	 * @throws NullPointerException If any argument is null.
+	 * @throws IllegalStateException If more than a billion objects are reachable.
+	 * @throws Error If something went wrong in the JVM.
+	 */
+	public static long getDeepSize(final Instrumentation agent, final Object root, final SizeOptions options) throws NullPointerException, IllegalStateException {
+
+		Objects.requireNonNull(agent);
+		Objects.requireNonNull(root);
+
+		if (options.parallel()) {
+
+			return ParallelGraphWalker.getDeepSize(agent, root, options); // Walk with several threads
+		}
+
+		final Class<?>[] stopClasses = options.stopClasses().toArray(new Class<?>[0]);
+		final boolean skipShared = options.skipShared();
+		final IdentitySet visited = new IdentitySet();
+		final ArrayDeque<Object> pending = new ArrayDeque<>(); // The stack of objects to be visited
+
+		visited.add(root);
+
+		for (final Object stop : options.stopObjects()) {
+
+			visited.add(stop); // Stop objects look already visited (so they're never counted)
+		}
+
+		long size = 0L;
+
+		for (Object instance = root; instance != null; instance = pending.poll()) {
+
+			size += agent.getObjectSize(instance);
+
+			final Class<?> type = instance.getClass();
+
+			if (type.isArray()) {
+
+				if (!type.getComponentType().isPrimitive()) {
+
+					for (final Object element : (Object[]) instance) {
+
+						visit(element, stopClasses, skipShared, visited, pending);
+					}
+				}
+
+				continue;
+			}
+
+			for (final VarHandle field : FieldLayout.getHandles(agent, type)) {
+
+				visit(field.get(instance), stopClasses, skipShared, visited, pending);
+			}
+		}
+
+		return size;
+	}
+
+	static boolean isSkipped(final Object instance, final Class<?>[] stopClasses, final boolean skipShared) {
+
+		for (final Class<?> stop : stopClasses) {
+
+			if (stop.isInstance(instance)) {
+
+				return true;
+			}
+		}
+
+		return skipShared && isShared(instance);
+	}
+
+	static boolean isShared(final Object instance) {
+
+		return switch (instance) {
+
+			case final Class<?> ignored -> true;
+			case final ClassLoader ignored -> true;
+			case final Module ignored -> true;
+			case final Thread ignored -> true;
+			case final Enum<?> ignored -> true;
+			case final Boolean value -> value == Boolean.valueOf(value);
+			case final Byte value -> value == Byte.valueOf(value);
+			case final Character value -> value == Character.valueOf(value);
+			case final Short value -> value == Short.valueOf(value);
+			case final Integer value -> value == Integer.valueOf(value);
+			case final Long value -> value == Long.valueOf(value);
+
+			default -> {
+
+				for (final Object shared : SHARED) {
+
+					if (shared == instance) {
+
+						yield true;
+					}
+				}
+
+				yield false;
+			}
+		};
+	}
+
+	private static void visit(final Object instance, final Class<?>[] stopClasses, final boolean skipShared, final IdentitySet visited, final ArrayDeque<Object> pending) {
+
+		if (instance != null && !isSkipped(instance, stopClasses, skipShared) && visited.add(instance)) {
+
+			pending.push(instance);
+		}
+	}
+}
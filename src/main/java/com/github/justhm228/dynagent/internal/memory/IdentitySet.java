@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.internal.memory;
+
+/**
+ * A set of objects compared by identity, which doesn't allocate anything per object.
+ *
+ * <p>
+ *     Objects are kept right in an open-addressed table (with linear probing) and found by their identity hash
+ *     codes, so adding an object never allocates an entry or a box (unlike {@code IdentityHashMap.newKeySet()},
+ *     it only allocates a new table when it grows). Objects can't be removed.
+ * </p>
+ *
+ * <p>
+ *     <b>Note:</b> this class isn't thread-safe.
+ * </p>
+ */
+final class IdentitySet {
+
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	private Object[] table = new Object[64]; // Its length is always a power of two
+
+	private int shift = Integer.SIZE - 6; // Takes the high bits of a scrambled hash code as an index in the table
+
+	private int size = 0;
+
+	IdentitySet() {
+
+		super();
+	}
+
+	boolean add(final Object instance) throws IllegalStateException {
+
+		final Object[] table = this.table; // <- To avoid reading the field in the loop
+		final int mask = table.length - 1;
+
+		for (int index = index(instance, shift); ; index = index + 1 & mask) {
+
+			final Object present = table[index];
+
+			if (present == instance) {
+
+				return false; // Already added
+			}
+
+			if (present == null) {
+
+				table[index] = instance;
+
+				if (++size > table.length >>> 1) {
+
+					grow(); // Keep at most a half of the table full (so probes stay short)
+				}
+
+				return true;
+			}
+		}
+	}
+
+	int size() {
+
+		return size;
+	}
+
+	private void grow() throws IllegalStateException {
+
+		final Object[] table = this.table;
+
+		if (table.length == MAXIMUM_CAPACITY) {
+
+			throw new IllegalStateException("Too many objects!");
+		}
+
+		final Object[] grown = new Object[table.length << 1];
+		final int mask = grown.length - 1;
+
+		shift--;
+
+		for (final Object instance : table) {
+
+			if (instance != null) {
+
+				int index = index(instance, shift);
+
+				while (grown[index] != null) {
+
+					index = index + 1 & mask;
+				}
+
+				grown[index] = instance;
+			}
+		}
+
+		this.table = grown;
+	}
+
+	private static int index(final Object instance, final int shift) {
+
+		return System.identityHashCode(instance) * 0x9E3779B9 >>> shift; // Fibonacci hashing spreads close hash codes
+	}
+}
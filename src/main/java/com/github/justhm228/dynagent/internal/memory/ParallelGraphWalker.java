@@ -0,0 +1,200 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.internal.memory;
+
+import com.github.justhm228.dynagent.agent.*;
+import java.io.*;
+import java.lang.instrument.*;
+import java.lang.invoke.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Finds a deep size of an object with several threads of the common {@link ForkJoinPool}.
+ *
+ * <p>
+ *     Every task walks its part of the graph just like {@link GraphWalker} does (with its own explicit stack), but
+ *     all tasks share a {@link ConcurrentIdentitySet}, so every object is still counted once. A task shares work
+ *     in two ways: a large array of references (e.g. a backing array of a large collection) is split into slices
+ *     walked by subtasks, and when its own stack grows too large, a half of it is given to a new subtask. So even
+ *     a graph with a single root is spread over all threads soon.
+ * </p>
+ *
+ * <p>
+ *     <b>Note:</b> this class is never loaded by the temporary installer process, so it's not a part of its jar file.
+ * </p>
+ *
+ * @see GraphWalker
+ */
+final class ParallelGraphWalker {
+
+	private static final int CHUNK = 1024; // How many objects are worth a task of their own
+
+	private ParallelGraphWalker() throws UnsupportedOperationException {
+
+		throw new UnsupportedOperationException();
+	}
+
+	static long getDeepSize(final Instrumentation agent, final Object root, final SizeOptions options) throws IllegalStateException {
+
+		final ForkJoinPool pool = ForkJoinPool.commonPool();
+		final Walk walk = new Walk(agent, options.stopClasses().toArray(new Class<?>[0]), options.skipShared(), new ConcurrentIdentitySet(pool.getParallelism()));
+
+		walk.visited().add(root);
+
+		for (final Object stop : options.stopObjects()) {
+
+			walk.visited().add(stop); // Stop objects look already visited (so they're never counted)
+		}
+
+		return pool.invoke(new Task(walk, new Object[] { root }, 0, 1, true));
+	}
+
+	private record Walk(Instrumentation agent, Class<?>[] stopClasses, boolean skipShared, ConcurrentIdentitySet visited) {
+
+		// A state shared by all tasks of a single walk
+
+		private void visit(final Object instance, final ArrayDeque<Object> pending) {
+
+			if (instance != null && !GraphWalker.isSkipped(instance, stopClasses, skipShared) && visited.add(instance)) {
+
+				pending.push(instance);
+			}
+		}
+	}
+
+	private static final class Task extends RecursiveTask<Long> {
+
+		@Serial()
+		private static final long serialVersionUID = 1L; // A task is never serialized (it's only `Serializable` because every `ForkJoinTask` is)
+
+		private final transient Walk walk;
+
+		private final transient Object[] objects; // A slice of it is walked by this task
+
+		private final int from;
+
+		private final int to;
+
+		private final boolean claimed; // Whether objects of the slice are already marked as visited (otherwise they're array elements)
+
+		private Task(final Walk walk, final Object[] objects, final int from, final int to, final boolean claimed) {
+
+			super();
+
+			this.walk = walk;
+			this.objects = objects;
+			this.from = from;
+			this.to = to;
+			this.claimed = claimed;
+		}
+
+		@Override()
+		protected Long compute() {
+
+			if (to - from > CHUNK) {
+
+				// Split a large slice in halves:
+				final int middle = from + to >>> 1;
+				final Task left = new Task(walk, objects, from, middle, claimed);
+
+				left.fork();
+				return new Task(walk, objects, middle, to, claimed).compute() + left.join();
+			}
+
+			final Instrumentation agent = walk.agent();
+			final ArrayDeque<Object> pending = new ArrayDeque<>(); // The stack of objects to be visited by this task
+			final List<Task> forked = new ArrayList<>();
+
+			for (int i = from; i < to; i++) {
+
+				if (claimed) {
+
+					pending.push(objects[i]);
+
+				} else {
+
+					walk.visit(objects[i], pending);
+				}
+			}
+
+			long size = 0L;
+
+			for (Object instance; (instance = pending.poll()) != null; ) {
+
+				size += agent.getObjectSize(instance);
+
+				final Class<?> type = instance.getClass();
+
+				if (type.isArray()) {
+
+					if (!type.getComponentType().isPrimitive()) {
+
+						final Object[] elements = (Object[]) instance;
+
+						if (elements.length > CHUNK) {
+
+							forked.add((Task) new Task(walk, elements, 0, elements.length, false).fork()); // Walked by subtasks
+
+						} else {
+
+							for (final Object element : elements) {
+
+								walk.visit(element, pending);
+							}
+						}
+					}
+
+				} else {
+
+					for (final VarHandle field : FieldLayout.getHandles(agent, type)) {
+
+						walk.visit(field.get(instance), pending);
+					}
+				}
+
+				if (pending.size() > CHUNK) {
+
+					// Give a half of the stack to a new subtask (they're already visited, so it just walks them):
+					final Object[] shared = new Object[pending.size() >>> 1];
+
+					for (int i = 0; i < shared.length; i++) {
+
+						shared[i] = pending.pollLast(); // The oldest objects (the newest ones are still hot in the cache)
+					}
+
+					forked.add((Task) new Task(walk, shared, 0, shared.length, true).fork());
+				}
+			}
+
+			for (final Task task : forked) {
+
+				size += task.join();
+			}
+
+			return size;
+		}
+	}
+}
@@ -27,12 +27,17 @@ module dynagent.base {
 	requires java.base;
 	requires java.instrument;
 	requires transitive jdk.attach;
+	requires jdk.management;
+	requires jdk.net;
+	requires jdk.jfr;
 
 	exports com.github.justhm228.dynagent.agent;
 	exports com.github.justhm228.dynagent.internal.agent to java.instrument, dynagent.test;
 	exports com.github.justhm228.dynagent.internal.file to java.instrument, dynagent.test;
+	exports com.github.justhm228.dynagent.internal.memory to dynagent.test;
 
 	opens com.github.justhm228.dynagent.agent to dynagent.test;
 	opens com.github.justhm228.dynagent.internal.agent to dynagent.test;
 	opens com.github.justhm228.dynagent.internal.file to dynagent.test;
+	opens com.github.justhm228.dynagent.internal.memory to dynagent.test;
 }
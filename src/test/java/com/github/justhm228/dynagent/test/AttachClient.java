@@ -0,0 +1,45 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.test;
+
+import com.github.justhm228.dynagent.internal.agent.DynagentAttacher;
+import java.nio.file.*;
+
+// Loads an agent (`-Dagent=<path>`) to a VM (`-Dtarget=<pid>`, or the current one by default) via the attach protocol:
+public final class AttachClient {
+
+	private AttachClient() throws UnsupportedOperationException {
+
+		throw new UnsupportedOperationException();
+	}
+
+	public static void main(final String[] args) {
+
+		final String target = System.getProperty("target", String.valueOf(ProcessHandle.current().pid()));
+
+		System.out.println("LOADED " + DynagentAttacher.attach(target, System.getProperty("agent")));
+		System.out.println("SOCKET " + Files.exists(Path.of("/tmp", ".java_pid" + target))); // Only a handshake creates it (not the diagnostic command)
+	}
+}
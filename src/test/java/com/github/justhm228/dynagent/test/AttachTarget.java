@@ -0,0 +1,51 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.test;
+
+import java.lang.instrument.*;
+import java.util.concurrent.*;
+
+// A VM to attach to (its agent is loaded by the test, and it exits once the agent is loaded):
+public final class AttachTarget {
+
+	private static final CountDownLatch ATTACHED = new CountDownLatch(1);
+
+	private AttachTarget() throws UnsupportedOperationException {
+
+		throw new UnsupportedOperationException();
+	}
+
+	public static void main(final String[] args) throws InterruptedException {
+
+		System.out.println("READY");
+		System.exit(ATTACHED.await(30L, TimeUnit.SECONDS) ? 0 : 1);
+	}
+
+	public static void agentmain(final String options, final Instrumentation agent) {
+
+		System.out.println("ATTACHED " + (agent != null));
+		ATTACHED.countDown();
+	}
+}
@@ -25,13 +25,33 @@
 package com.github.justhm228.dynagent.test;
 
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
 import org.opentest4j.TestAbortedException;
 import com.github.justhm228.dynagent.agent.Dynagent;
+import com.github.justhm228.dynagent.agent.InstallMethod;
+import com.github.justhm228.dynagent.agent.InstallOutcome;
+import com.github.justhm228.dynagent.agent.InstallReport;
+import com.github.justhm228.dynagent.internal.agent.DynagentAttacher;
 import com.github.justhm228.dynagent.internal.agent.DynagentImpl;
+import com.github.justhm228.dynagent.internal.agent.DynagentInstaller;
+import com.github.justhm228.dynagent.internal.file.FileCache;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.jar.*;
+import java.util.stream.Stream;
 
 @TestMethodOrder(value = MethodOrderer.OrderAnnotation.class)
 public class AttachTest {
 
+	private static final String OPENED = "--add-opens=jdk.attach/sun.tools.attach=ALL-UNNAMED"; // Lets Dynagent send `SIGQUIT`
+
 	public AttachTest() {
 
 		super();
@@ -53,11 +73,33 @@ public class AttachTest {
 	public void testInstallCheck() throws AssertionError {
 
 		Assertions.assertTrue(Dynagent.isInstalled());
+		Assertions.assertTrue(Dynagent.canInstall());
 	}
 
-	@DisplayName("Internal State")
+	@DisplayName("Installation Method")
 	@Test()
 	@Order(2)
+	public void testInstallMethod() throws AssertionError {
+
+		Assertions.assertNotNull(Dynagent.getInstallMethod());
+	}
+
+	@DisplayName("Installation Report")
+	@Test()
+	@Order(3)
+	public void testInstallReport() throws AssertionError {
+
+		final InstallReport report = Dynagent.getInstallReport();
+
+		Assertions.assertNotNull(report);
+		Assertions.assertEquals(InstallOutcome.INSTALLED, report.outcome());
+		Assertions.assertEquals(Dynagent.getInstallMethod(), report.method());
+		Assertions.assertTrue(report.method() == InstallMethod.STARTUP || !report.phaseNanos().isEmpty());
+	}
+
+	@DisplayName("Internal State")
+	@Test()
+	@Order(4)
 	@Tag("internal")
 	public void testInternal() {
 
@@ -66,10 +108,210 @@ public class AttachTest {
 
 	@DisplayName("Startup Phase")
 	@Test()
-	@Order(3)
+	@Order(5)
 	@Tag("internal")
 	public void testState() {
 
 		DynagentImpl.isStartup();
 	}
+
+	@DisplayName("Asynchronous Installation")
+	@Test()
+	@Order(6)
+	@Tag("internal")
+	public void testInstallAsync() throws IOException, InterruptedException, TimeoutException {
+
+		Assertions.assertTrue(DynagentInstaller.installAsync().join());
+
+		// This JVM has already installed it, so the public API is tested in a fresh one:
+		Assertions.assertTrue(TestProcesses.run(PublicInstallation.class, "-Dscenario=async").contains("OK"));
+	}
+
+	@DisplayName("Timed Installation")
+	@Test()
+	@Order(7)
+	@Tag("internal")
+	public void testInstallTimed() throws IOException, InterruptedException, TimeoutException {
+
+		Assertions.assertTrue(DynagentInstaller.install(0L, TimeUnit.NANOSECONDS));
+		Assertions.assertEquals(InstallOutcome.INSTALLED, Dynagent.install(Duration.ofSeconds(10L)).outcome()); // A late caller
+
+		// This JVM has already installed it, so the public API is tested in a fresh one:
+		Assertions.assertTrue(TestProcesses.run(PublicInstallation.class, "-Dscenario=timed").contains("OK"));
+	}
+
+	@DisplayName("Shared Timed Installation")
+	@Test()
+	@Order(8)
+	public void testInstallShared() throws IOException, InterruptedException, TimeoutException {
+
+		// A temporary installer process is slow enough to time out a 1 ns wait for sure:
+		Assertions.assertTrue(TestProcesses.run(PublicInstallation.class, "-Dscenario=race", "-Ddynagent.attach=process").contains("OK"));
+
+		// Untimed callers which join right when a lone timed caller gives up get another installation:
+		Assertions.assertTrue(TestProcesses.run(PublicInstallation.class, "-Dscenario=abandon", "-Ddynagent.attach=process").contains("OK"));
+	}
+
+	@DisplayName("Attach Protocol")
+	@Test()
+	@Tag("internal")
+	public void testAttachProtocol(@TempDir() final Path directory) throws IOException, InterruptedException, TimeoutException {
+
+		Assumptions.assumeTrue(DynagentAttacher.isSupported(), "The attach protocol of HotSpot on Linux isn't supported here");
+
+		// An agent jar which only contains the target class:
+		final Path jar = directory.resolve("target.jar");
+		final Manifest manifest = new Manifest();
+
+		manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+		manifest.getMainAttributes().putValue("Agent-Class", AttachTarget.class.getName());
+
+		try (final JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar), manifest); final InputStream in = AttachTarget.class.getResourceAsStream("AttachTarget.class")) {
+
+			Assertions.assertNotNull(in);
+			out.putNextEntry(new JarEntry(AttachTarget.class.getName().replace('.', '/') + ".class"));
+			in.transferTo(out);
+		}
+
+		// A VM with a started attach mechanism is attached to through its socket:
+		final Process listening = TestProcesses.start(AttachTarget.class, "-XX:+StartAttachListener", "-XX:+EnableDynamicAgentLoading");
+
+		try (final BufferedReader output = listening.inputReader(StandardCharsets.UTF_8)) {
+
+			Assertions.assertEquals("READY", output.readLine());
+			Assertions.assertTrue(DynagentAttacher.attach(String.valueOf(listening.pid()), jar.toString()));
+			Assertions.assertEquals("ATTACHED true", output.readLine());
+			Assertions.assertTrue(listening.waitFor(30L, TimeUnit.SECONDS));
+			Assertions.assertEquals(0, listening.exitValue());
+
+		} finally {
+
+			listening.destroyForcibly();
+		}
+
+		// Without the Attach API opened, another VM can't be signalled to start its attach mechanism, so it isn't attached to:
+		final Process silent = TestProcesses.start(AttachTarget.class);
+
+		try (final BufferedReader output = silent.inputReader(StandardCharsets.UTF_8)) {
+
+			Assertions.assertEquals("READY", output.readLine());
+			Assertions.assertFalse(DynagentAttacher.attach(String.valueOf(silent.pid()), jar.toString()));
+
+		} finally {
+
+			silent.destroyForcibly();
+		}
+
+		// ...unless `SIGQUIT` can be sent via the Attach API (then the handshake starts its attach mechanism):
+		final Process signalled = TestProcesses.start(AttachTarget.class, "-XX:+EnableDynamicAgentLoading");
+
+		try (final BufferedReader output = signalled.inputReader(StandardCharsets.UTF_8)) {
+
+			Assertions.assertEquals("READY", output.readLine());
+			Assertions.assertTrue(TestProcesses.run(AttachClient.class, OPENED, "-Dtarget=" + signalled.pid(), "-Dagent=" + jar).contains("LOADED true"));
+			Assertions.assertEquals("ATTACHED true", output.readLine());
+
+		} finally {
+
+			signalled.destroyForcibly();
+		}
+
+		// The current VM starts its own attach mechanism the same way:
+		final String self = TestProcesses.run(AttachClient.class, OPENED, "-XX:+EnableDynamicAgentLoading", "-Dagent=" + jar);
+
+		Assertions.assertTrue(self.contains("ATTACHED true"), self);
+		Assertions.assertTrue(self.contains("LOADED true"), self);
+		Assertions.assertTrue(self.contains("SOCKET true"), self);
+	}
+
+	@DisplayName("Shared Archive Creation")
+	@Test()
+	@Tag("internal")
+	public void testSharedArchive(@TempDir() final Path directory) throws IOException, InterruptedException, TimeoutException {
+
+		final String cache = "-Ddynagent.cache=" + directory;
+
+		// The first launch creates a cached jar file along with its class-data sharing archive:
+		Assertions.assertTrue(TestProcesses.run(VirtualInstallation.class, cache, "-Ddynagent.attach=process").contains("OK"));
+
+		final List<Path> jars;
+
+		try (final Stream<Path> files = Files.list(directory)) {
+
+			jars = files.filter((file) -> file.toString().endsWith(".jar")).toList();
+		}
+
+		Assertions.assertEquals(1, jars.size(), jars.toString());
+
+		final String base = jars.get(0).toString().substring(0, jars.get(0).toString().length() - ".jar".length());
+		final Path archive = Path.of(base + ".jsa");
+
+		Assertions.assertTrue(Files.isRegularFile(archive));
+		Files.delete(archive);
+
+		// A launch which can't lock its creation (as if another launch was creating it) doesn't write the archive:
+		try (final FileChannel lock = FileChannel.open(Path.of(base + ".jsa.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+
+			Assertions.assertNotNull(lock.tryLock());
+			Assertions.assertTrue(TestProcesses.run(VirtualInstallation.class, cache, "-Ddynagent.attach=process").contains("OK"));
+			Assertions.assertFalse(Files.exists(archive));
+		}
+
+		// ...but the next launch does:
+		Assertions.assertTrue(TestProcesses.run(VirtualInstallation.class, cache, "-Ddynagent.attach=process").contains("OK"));
+		Assertions.assertTrue(Files.isRegularFile(archive));
+	}
+
+	@DisplayName("File Cache Clean-up")
+	@Test()
+	@Tag("internal")
+	public void testFileCache(@TempDir() final Path directory) throws IOException {
+
+		final String configured = System.getProperty("dynagent.cache");
+		final FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 31L * 86400000L);
+		final Path stale = Files.write(directory.resolve("test-0.0.0-" + "0".repeat(32) + ".jar"), new byte[0]);
+		final Path archive = Files.write(directory.resolve("test-0.0.0-" + "0".repeat(32) + ".jsa"), new byte[0]);
+		final Path fresh = Files.write(directory.resolve("test-0.0.0-" + "1".repeat(32) + ".jar"), new byte[0]);
+		final Path foreign = Files.write(directory.resolve("notes.txt"), new byte[0]);
+
+		Files.setLastModifiedTime(stale, old);
+		Files.setLastModifiedTime(archive, old);
+		Files.setLastModifiedTime(foreign, old);
+		System.setProperty("dynagent.cache", directory.toString());
+
+		try {
+
+			final String jar = FileCache.get("test", new byte[] { 1, 2, 3 }); // A cache miss
+
+			Assertions.assertNotNull(jar);
+			Assertions.assertTrue(Files.exists(Path.of(jar)));
+			Assertions.assertFalse(Files.exists(stale));
+			Assertions.assertFalse(Files.exists(archive));
+			Assertions.assertTrue(Files.exists(fresh));
+			Assertions.assertTrue(Files.exists(foreign)); // Not a cache entry
+
+			// A cache hit marks an entry (and its archive) as used, so it isn't cleaned up while it's still in use:
+			final Path used = Path.of(jar);
+			final Path shared = used.resolveSibling(used.getFileName().toString().replace(".jar", ".jsa"));
+
+			Files.write(shared, new byte[0]);
+			Files.setLastModifiedTime(used, old);
+			Files.setLastModifiedTime(shared, old);
+
+			Assertions.assertEquals(jar, FileCache.get("test", new byte[] { 1, 2, 3 }));
+			Assertions.assertTrue(Files.getLastModifiedTime(used).compareTo(old) > 0);
+			Assertions.assertTrue(Files.getLastModifiedTime(shared).compareTo(old) > 0);
+
+		} finally {
+
+			if (configured == null) {
+
+				System.clearProperty("dynagent.cache");
+
+			} else {
+
+				System.setProperty("dynagent.cache", configured);
+			}
+		}
+	}
 }
@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.test;
+
+import org.junit.jupiter.api.*;
+import com.github.justhm228.dynagent.agent.Dynagent;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class ConcurrencyTest {
+
+	public ConcurrencyTest() {
+
+		super();
+	}
+
+	@BeforeAll()
+	public static void setup() {
+
+		if (!Dynagent.isInstalled()) {
+
+			Dynagent.install(TestConstants.WHITELIST);
+		}
+	}
+
+	@DisplayName("Virtual Threads")
+	@Test()
+	@Tag("internal")
+	public void testVirtualThreads() throws IOException, InterruptedException, TimeoutException {
+
+		// The JVM reports a virtual thread which parks while it's pinned to its carrier (e.g. by a monitor), so it's traced in a fresh one:
+		final String output = TestProcesses.run(VirtualAccess.class, "-Djdk.tracePinnedThreads=full");
+
+		Assertions.assertTrue(output.contains("OK"), output);
+		Assertions.assertEquals(List.of(), getPinnedByDynagent(output), output);
+	}
+
+	@DisplayName("Installation on Virtual Threads")
+	@Test()
+	@Tag("internal")
+	public void testVirtualInstallation() throws IOException, InterruptedException, TimeoutException {
+
+		// This JVM has already installed it, so a real installation is done in a fresh one (in every mode which can block a caller):
+		for (final String mode : List.of("auto", "process")) {
+
+			final String output = TestProcesses.run(VirtualInstallation.class, "-Djdk.tracePinnedThreads=full", "-Ddynagent.attach=" + mode);
+
+			Assertions.assertTrue(output.contains("OK"), output);
+			Assertions.assertEquals(List.of(), getPinnedByDynagent(output), output);
+		}
+	}
+
+	// Returns every pinned stack (a trace starts with an unindented line) with a frame of Dynagent anywhere in it:
+	static List<String> getPinnedByDynagent(final String trace) {
+
+		final List<String> pinned = new ArrayList<>();
+
+		StringBuilder stack = null;
+
+		for (final String line : (trace + "\n<end>").lines().toList()) {
+
+			if (!line.isEmpty() && !Character.isWhitespace(line.charAt(0))) {
+
+				if (stack != null && stack.indexOf("<== monitors") >= 0 && stack.toString().lines().anyMatch(ConcurrencyTest::isDynagentFrame)) {
+
+					pinned.add(stack.toString());
+				}
+
+				stack = new StringBuilder();
+			}
+
+			if (stack != null) {
+
+				stack.append(line).append('\n');
+			}
+		}
+
+		return pinned;
+	}
+
+	private static boolean isDynagentFrame(final String frame) {
+
+		final String method = frame.strip().replaceFirst("^[^/(]+/", ""); // Without a module name (if any)
+
+		// Frames of the tests themselves are in every stack:
+		return method.startsWith("com.github.justhm228.dynagent.") && !method.startsWith("com.github.justhm228.dynagent.test.");
+	}
+}
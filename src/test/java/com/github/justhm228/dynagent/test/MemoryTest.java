@@ -25,11 +25,19 @@
 package com.github.justhm228.dynagent.test;
 
 import java.lang.instrument.Instrumentation;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import com.github.justhm228.dynagent.agent.Dynagent;
+import com.github.justhm228.dynagent.agent.SizeOptions;
 
 public class MemoryTest {
 
@@ -64,4 +72,110 @@ public class MemoryTest {
 		System.out.println(getAgent().getObjectSize(sample));
 		// TODO 07.03.2025: Implement more tests later.
 	}
+
+	static final class Node {
+
+		private final Object value;
+
+		private Node next;
+
+		Node(final Object value) {
+
+			this.value = value;
+		}
+	}
+
+	@DisplayName("Dynagent.getDeepObjectSize(Object)")
+	@Test()
+	public void test_getDeepObjectSize() {
+
+		final Instrumentation agent = getAgent();
+		final Object shared = new Object();
+		final Object[] pair = { shared, shared };
+
+		// Every reachable object is counted once, and a cycle is just walked around once:
+		Assertions.assertEquals(agent.getObjectSize(pair) + agent.getObjectSize(shared), Dynagent.getDeepObjectSize(pair));
+
+		final Node cycle = new Node(new long[16]);
+
+		cycle.next = cycle;
+		Assertions.assertEquals(agent.getObjectSize(cycle) + agent.getObjectSize(cycle.value), Dynagent.getDeepObjectSize(cycle));
+
+		// Shared objects of the JDK are skipped unless they're asked for:
+		final Node shares = new Node(List.of());
+
+		Assertions.assertEquals(agent.getObjectSize(shares), Dynagent.getDeepObjectSize(shares));
+		Assertions.assertEquals(agent.getObjectSize(shares) + Dynagent.getDeepObjectSize(List.of(), SizeOptions.defaults().withSkipShared(false)), Dynagent.getDeepObjectSize(shares, SizeOptions.defaults().withSkipShared(false)));
+
+		// Stops are neither counted nor walked into:
+		final Node head = new Node("12345");
+
+		head.next = new Node(new long[16]);
+		Assertions.assertEquals(agent.getObjectSize(head) + Dynagent.getDeepObjectSize(head.value), Dynagent.getDeepObjectSize(head, SizeOptions.defaults().withStopObjects(head.next)));
+		Assertions.assertEquals(agent.getObjectSize(head), Dynagent.getDeepObjectSize(head, SizeOptions.defaults().withStopClasses(Node.class, CharSequence.class)));
+
+		// A deep graph doesn't overflow the stack:
+		Node list = null;
+
+		for (int i = 0; i < 1_000_000; i++) {
+
+			final Node node = new Node(null);
+
+			node.next = list;
+			list = node;
+		}
+
+		Assertions.assertEquals(1_000_000L * agent.getObjectSize(list), Dynagent.getDeepObjectSize(list));
+
+		// Fields of closed JDK packages are read too:
+		final List<Object> values = new ArrayList<>(List.of(new long[16]));
+
+		Assertions.assertTrue(Dynagent.getDeepObjectSize(values) > agent.getObjectSize(values) + agent.getObjectSize(values.get(0)));
+
+		// A referent isn't retained by its reference (but fields inherited from its superclass are still walked):
+		final long[] referent = new long[1024];
+		final WeakReference<long[]> reference = new WeakReference<>(referent, new ReferenceQueue<>());
+
+		Assertions.assertTrue(Dynagent.getDeepObjectSize(reference) < agent.getObjectSize(referent));
+		Assertions.assertTrue(Dynagent.getDeepObjectSize(reference) > agent.getObjectSize(reference));
+		Assertions.assertEquals(Dynagent.getDeepObjectSize(reference), Dynagent.getDeepObjectSize(reference));
+		Reference.reachabilityFence(referent); // Otherwise the reference could be enqueued in the meantime (which changes it)
+	}
+
+	@DisplayName("Parallel Deep Size")
+	@Test()
+	public void testParallelDeepSize() {
+
+		// Large arrays, large collections, long chains and objects shared between them:
+		final Map<Integer, Node> map = new HashMap<>();
+		final Object[] array = new Object[100_000];
+		final Node shared = new Node(new long[16]);
+
+		for (int i = 0; i < array.length; i++) {
+
+			final Node node = new Node(i % 10 == 0 ? shared : new int[i % 7]);
+
+			node.next = i % 3 == 0 ? shared : null;
+			array[i] = node;
+			map.put(i, node);
+		}
+
+		Node list = null;
+
+		for (int i = 0; i < 100_000; i++) {
+
+			final Node node = new Node(list == null ? array : null);
+
+			node.next = list;
+			list = node;
+		}
+
+		final Object[] root = { map, array, list, shared };
+		final SizeOptions options = SizeOptions.defaults().withStopObjects(array[42]);
+		final long size = Dynagent.getDeepObjectSize(root, options);
+
+		Assertions.assertTrue(size > 0L);
+		Assertions.assertEquals(size, Dynagent.getDeepObjectSize(root, options.withParallel(true)));
+		Assertions.assertEquals(size, Dynagent.getDeepObjectSize(root, options.withParallel(true)));
+	}
 }
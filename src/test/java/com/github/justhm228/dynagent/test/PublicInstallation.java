@@ -0,0 +1,174 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.test;
+
+import com.github.justhm228.dynagent.agent.Dynagent;
+import com.github.justhm228.dynagent.agent.InstallOutcome;
+import com.github.justhm228.dynagent.agent.InstallReport;
+import java.lang.instrument.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
+// Installs Dynagent in a fresh JVM via the public API (`-Dscenario=async`, `-Dscenario=timed`, `-Dscenario=race` or `-Dscenario=abandon`) and checks who can use it:
+public final class PublicInstallation {
+
+	private static final long[] DELAYS = { 0L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L }; // When untimed callers join after a timed one gives up (in nanoseconds)
+
+	private PublicInstallation() throws UnsupportedOperationException {
+
+		throw new UnsupportedOperationException();
+	}
+
+	public static void main(final String[] args) {
+
+		check(!Dynagent.isInstalled(), "Dynagent is already installed");
+
+		final Instrumentation agent;
+
+		switch (System.getProperty("scenario")) {
+
+			case "async" -> {
+
+				agent = Dynagent.installAsync(new Class<?>[] { Listed.class }).join();
+				check(agent != null, "The installation failed");
+				check(Late.installAsync() == null, "A late caller got an Instrumentation");
+				check(Dynagent.installAsync().join() == agent, "A late whitelisted caller didn't get an Instrumentation");
+			}
+
+			case "timed" -> {
+
+				final InstallReport report = Dynagent.install(Duration.ofSeconds(60L), new Class<?>[] { Listed.class });
+
+				check(report.outcome() == InstallOutcome.INSTALLED, "The installation failed: " + report);
+				check(report.method() != null, "The installation has no method");
+				agent = Dynagent.getAgent();
+				check(Late.install(Duration.ofSeconds(60L)).outcome() == InstallOutcome.FAILED, "A late caller got a successful report");
+				check(Dynagent.install(Duration.ofSeconds(60L)).outcome() == InstallOutcome.INSTALLED, "A late whitelisted caller didn't get a report");
+			}
+
+			case "race" -> {
+
+				// An untimed caller joins first, so a timed caller which gives up mustn't cancel the installation:
+				final CompletableFuture<Instrumentation> untimed = Dynagent.installAsync(new Class<?>[] { Listed.class });
+				final InstallReport report = Late.install(Duration.ofNanos(1L));
+
+				check(report.outcome() == InstallOutcome.TIMED_OUT, "The timed caller didn't time out: " + report);
+				agent = untimed.join();
+				check(agent != null, "The installation was cancelled: " + Dynagent.getInstallReport());
+				check(Dynagent.getInstallReport().outcome() == InstallOutcome.INSTALLED, "The installation wasn't reported");
+			}
+
+			case "abandon" -> {
+
+				// A timed caller starts the installation alone, and untimed callers join right when it gives up (while it's being cancelled) and a bit later:
+				try (final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+
+					final CompletableFuture<InstallReport> timed = CompletableFuture.supplyAsync(() -> Late.install(Duration.ofNanos(1L)), executor);
+					final List<CompletableFuture<Instrumentation>> untimed = new ArrayList<>(DELAYS.length + 1);
+
+					untimed.add(timed.thenApply((ignored) -> Dynagent.installAsync(new Class<?>[] { Listed.class }).join())); // Right in the thread which gave up
+
+					for (final long delay : DELAYS) {
+
+						untimed.add(timed.thenApplyAsync((ignored) -> {
+
+							LockSupport.parkNanos(delay);
+							return Dynagent.installAsync(new Class<?>[] { Listed.class }).join();
+
+						}, executor));
+					}
+
+					check(timed.join().outcome() == InstallOutcome.TIMED_OUT, "The timed caller didn't time out");
+					agent = untimed.get(0).join();
+
+					for (final CompletableFuture<Instrumentation> joined : untimed) {
+
+						check(joined.join() != null && joined.join() == agent, "An untimed caller got a cancelled installation: " + Dynagent.getInstallReport());
+					}
+				}
+			}
+
+			default -> throw new IllegalArgumentException("Unknown scenario");
+		}
+
+		check(!Late.install(), "A late caller was told it's whitelisted");
+		check(Dynagent.install(), "A late whitelisted caller was told it isn't whitelisted");
+		check(Dynagent.getAgent() == agent, "The installing caller isn't whitelisted");
+		check(Listed.getAgent() == agent, "A class from the whitelist isn't whitelisted");
+
+		try {
+
+			Late.getAgent();
+			check(false, "A late caller is whitelisted");
+
+		} catch (final IllegalCallerException expected) {
+
+			// A late caller isn't whitelisted
+		}
+
+		System.out.println("OK");
+	}
+
+	private static void check(final boolean condition, final String message) throws IllegalStateException {
+
+		if (!condition) {
+
+			throw new IllegalStateException(message);
+		}
+	}
+
+	static final class Listed {
+
+		static Instrumentation getAgent() {
+
+			return Dynagent.getAgent();
+		}
+	}
+
+	static final class Late {
+
+		static Instrumentation installAsync() {
+
+			return Dynagent.installAsync().join();
+		}
+
+		static boolean install() {
+
+			return Dynagent.install();
+		}
+
+		static InstallReport install(final Duration timeout) {
+
+			return Dynagent.install(timeout);
+		}
+
+		static Instrumentation getAgent() {
+
+			return Dynagent.getAgent();
+		}
+	}
+}
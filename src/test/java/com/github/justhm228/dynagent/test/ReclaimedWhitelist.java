@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.test;
+
+import com.github.justhm228.dynagent.agent.Dynagent;
+import java.io.*;
+import java.lang.ref.*;
+import java.util.*;
+
+// Whitelists a class of a throwaway class loader via a real installation in a fresh JVM, then drops the loader:
+public final class ReclaimedWhitelist {
+
+	private ReclaimedWhitelist() throws UnsupportedOperationException {
+
+		throw new UnsupportedOperationException();
+	}
+
+	public static void main(final String[] args) throws IOException, ClassNotFoundException, InterruptedException {
+
+		final WeakReference<ClassLoader> collected = install();
+
+		// A whitelisted class mustn't keep its class loader (like a loader of a redeployed application) reachable:
+		for (int i = 0; i < 100 && collected.get() != null; i++) {
+
+			System.gc();
+			Thread.sleep(10L);
+		}
+
+		check(collected.get() == null, "The class loader of a whitelisted class wasn't collected");
+		check(Dynagent.getObjectSize(Probe.class) > 0L, "The whitelist isn't usable after its rules were collected");
+
+		System.out.println("OK");
+	}
+
+	private static WeakReference<ClassLoader> install() throws IOException, ClassNotFoundException {
+
+		final byte[] bytecode;
+
+		try (final InputStream in = Probe.class.getResourceAsStream("ReclaimedWhitelist$Probe.class")) {
+
+			bytecode = Objects.requireNonNull(in).readAllBytes();
+		}
+
+		final ClassLoader loader = new ClassLoader(null) {
+
+			@Override()
+			protected Class<?> findClass(final String name) throws ClassNotFoundException {
+
+				return name.equals(Probe.class.getName()) ? defineClass(name, bytecode, 0, bytecode.length) : super.findClass(name);
+			}
+		};
+
+		final Class<?> probe = Class.forName(Probe.class.getName(), false, loader);
+
+		check(probe != Probe.class, "The probe wasn't loaded by a throwaway class loader");
+		check(Dynagent.install(new Class<?>[] { probe }), "Dynagent isn't installed");
+
+		return new WeakReference<>(loader);
+	}
+
+	private static void check(final boolean condition, final String message) throws IllegalStateException {
+
+		if (!condition) {
+
+			throw new IllegalStateException(message);
+		}
+	}
+
+	static final class Probe {
+
+		// Loaded by a throwaway class loader
+	}
+}
@@ -27,6 +27,10 @@ package com.github.justhm228.dynagent.test;
 import org.junit.jupiter.api.*;
 import com.github.justhm228.dynagent.agent.Dynagent;
 import com.github.justhm228.dynagent.internal.agent.DynagentImpl;
+import com.github.justhm228.dynagent.internal.agent.Whitelist;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.TimeoutException;
 
 public class SecurityTest {
 
@@ -81,6 +85,63 @@ public class SecurityTest {
 		Assertions.assertThrows(IllegalCallerException.class, RestrictedZone::callRestricted);
 	}
 
+	@DisplayName("Handle Access")
+	@Test()
+	public void testHandleAccess() {
+
+		Assertions.assertTrue(Dynagent.getHandle().getObjectSize(new Object()) > 0L);
+
+		final class RestrictedZone {
+
+			public static void callRestricted() {
+
+				Assertions.assertNotNull(Dynagent.getHandle());
+			}
+		}
+
+		Assertions.assertThrows(IllegalCallerException.class, RestrictedZone::callRestricted);
+	}
+
+	@DisplayName("Whitelist Memoization")
+	@Test()
+	@Tag("internal")
+	public void testWhitelist() {
+
+		final Whitelist whitelist = new Whitelist();
+
+		Assertions.assertFalse(whitelist.contains(SecurityTest.class)); // A refusal is memoized...
+		whitelist.add(SecurityTest.class);
+		Assertions.assertTrue(whitelist.contains(SecurityTest.class)); // ...but dropped when the class is added
+		Assertions.assertFalse(whitelist.contains(WhitelistedZone.class));
+
+		whitelist.addPackages(Object.class.getModule(), List.of("com.github.justhm228")); // Another module
+		whitelist.addPackages(SecurityTest.class.getModule(), List.of("com.github.justhm228.dyna")); // Not a whole name
+		Assertions.assertFalse(whitelist.contains(WhitelistedZone.class));
+
+		// An empty name isn't a parent of every package (it would whitelist the whole module), so it's rejected:
+		Assertions.assertThrows(IllegalArgumentException.class, () -> whitelist.addPackages(SecurityTest.class.getModule(), List.of("")));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> Dynagent.install(new String[] { "" }));
+		Assertions.assertFalse(whitelist.contains(WhitelistedZone.class));
+
+		whitelist.addPackages(SecurityTest.class.getModule(), List.of("com.github.justhm228.dynagent")); // A parent package
+		Assertions.assertTrue(whitelist.contains(WhitelistedZone.class));
+		Assertions.assertFalse(whitelist.contains(String.class));
+
+		whitelist.addModules(List.of(Object.class.getModule()));
+		Assertions.assertTrue(whitelist.contains(String.class));
+	}
+
+	@DisplayName("Whitelist Reclamation")
+	@Test()
+	@Tag("internal")
+	public void testWhitelistReclamation() throws IOException, InterruptedException, TimeoutException {
+
+		// This JVM has already installed it, so a class is whitelisted by a real installation in a fresh one:
+		final String output = TestProcesses.run(ReclaimedWhitelist.class);
+
+		Assertions.assertTrue(output.contains("OK"), output);
+	}
+
 	@DisplayName("Internal Access")
 	@Test()
 	@Tag("internal")
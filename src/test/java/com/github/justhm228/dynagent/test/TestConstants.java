@@ -34,6 +34,7 @@ public final class TestConstants {
 			LoaderTest.class,
 			MemoryTest.class,
 			TransformTest.class,
+			ConcurrencyTest.class,
 	};
 
 	private TestConstants() throws UnsupportedOperationException {
@@ -0,0 +1,86 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.test;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Runs a main class of the tests in a fresh JVM (e.g. to test an installation which this JVM has already done):
+public final class TestProcesses {
+
+	private TestProcesses() throws UnsupportedOperationException {
+
+		throw new UnsupportedOperationException();
+	}
+
+	public static Process start(final Class<?> main, final String... options) throws IOException {
+
+		final List<String> command = new ArrayList<>();
+
+		command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+		command.addAll(Arrays.asList(options));
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(main.getName());
+
+		return new ProcessBuilder(command).redirectErrorStream(true).start();
+	}
+
+	public static String run(final Class<?> main, final String... options) throws IOException, InterruptedException, TimeoutException {
+
+		final Process process = start(main, options);
+		final CompletableFuture<String> output = CompletableFuture.supplyAsync(() -> read(process));
+
+		if (!process.waitFor(60L, TimeUnit.SECONDS)) {
+
+			process.destroyForcibly();
+			throw new TimeoutException(main.getName() + " didn't exit in time");
+		}
+
+		final String result = output.join();
+
+		if (process.exitValue() != 0) {
+
+			throw new IllegalStateException(main.getName() + " exited with " + process.exitValue() + ":\n" + result);
+		}
+
+		return result;
+	}
+
+	private static String read(final Process process) {
+
+		try (final InputStream in = process.getInputStream()) {
+
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+
+		} catch (final IOException failed) {
+
+			throw new UncheckedIOException(failed);
+		}
+	}
+}
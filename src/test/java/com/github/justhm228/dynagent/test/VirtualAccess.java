@@ -0,0 +1,91 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.test;
+
+import com.github.justhm228.dynagent.agent.Dynagent;
+import com.github.justhm228.dynagent.internal.agent.Whitelist;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Uses Dynagent from many virtual threads at once in a fresh JVM (pinned threads are traced to stdout):
+public final class VirtualAccess {
+
+	private static final int THREADS = 10000;
+
+	private VirtualAccess() throws UnsupportedOperationException {
+
+		throw new UnsupportedOperationException();
+	}
+
+	public static void main(final String[] args) throws InterruptedException, ExecutionException {
+
+		check(Dynagent.install(new Class<?>[] { VirtualAccess.class }), "Dynagent isn't installed");
+
+		final Whitelist whitelist = new Whitelist(); // Its writers are contended, so they really park
+
+		try (final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+
+			final List<Future<?>> tasks = new ArrayList<>(THREADS);
+
+			for (int i = 0; i < THREADS; i++) {
+
+				final Class<?> type = switch (i % 3) {
+
+					case 0 -> VirtualAccess.class;
+					case 1 -> Whitelist.class;
+					default -> Dynagent.class;
+				};
+
+				tasks.add(executor.submit(() -> {
+
+					check(Dynagent.install(), "A repeated installation failed");
+					check(Dynagent.isInstalled(), "Dynagent isn't installed");
+					check(Dynagent.getAgent() != null, "No agent is available");
+					check(Dynagent.getObjectSize(type) > 0L, "The size of " + type + " isn't positive");
+					check(Dynagent.getHandle().getObjectSize(type) > 0L, "The size of " + type + " isn't positive (via a handle)");
+
+					whitelist.add(type);
+					check(whitelist.contains(type), type + " isn't whitelisted");
+					return null;
+				}));
+			}
+
+			for (final Future<?> task : tasks) {
+
+				task.get(); // Rethrows a failure of the task
+			}
+		}
+
+		System.out.println("OK");
+	}
+
+	private static void check(final boolean condition, final String message) throws IllegalStateException {
+
+		if (!condition) {
+
+			throw new IllegalStateException(message);
+		}
+	}
+}
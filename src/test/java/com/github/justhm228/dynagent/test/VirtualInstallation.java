@@ -0,0 +1,73 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.test;
+
+import com.github.justhm228.dynagent.agent.Dynagent;
+import com.github.justhm228.dynagent.agent.InstallOutcome;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Really installs Dynagent from many virtual threads at once in a fresh JVM (pinned threads are traced to stdout):
+public final class VirtualInstallation {
+
+	private static final int THREADS = 1000;
+
+	private VirtualInstallation() throws UnsupportedOperationException {
+
+		throw new UnsupportedOperationException();
+	}
+
+	public static void main(final String[] args) throws InterruptedException, ExecutionException {
+
+		if (Dynagent.isInstalled()) {
+
+			throw new IllegalStateException("Dynagent is already installed");
+		}
+
+		int installed = 0;
+
+		try (final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+
+			final List<Future<Boolean>> tasks = new ArrayList<>(THREADS);
+
+			for (int i = 0; i < THREADS; i++) {
+
+				tasks.add(executor.submit(() -> Dynagent.install()));
+			}
+
+			for (final Future<Boolean> task : tasks) {
+
+				installed += task.get() ? 1 : 0; // Rethrows a failure of the task
+			}
+		}
+
+		if (installed == 0 || Dynagent.getInstallReport().outcome() != InstallOutcome.INSTALLED || Dynagent.getAgent() == null) {
+
+			throw new IllegalStateException("The installation failed: " + Dynagent.getInstallReport());
+		}
+
+		System.out.println("OK");
+	}
+}
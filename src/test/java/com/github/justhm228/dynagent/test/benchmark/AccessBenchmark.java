@@ -0,0 +1,72 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.test.benchmark;
+
+import com.github.justhm228.dynagent.agent.Dynagent;
+import com.github.justhm228.dynagent.agent.DynagentHandle;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+// Compares the per-call cost of the caller-checked static API with a handle obtained once:
+@BenchmarkMode(value = Mode.AverageTime)
+@OutputTimeUnit(value = TimeUnit.NANOSECONDS)
+@Fork(value = 2, jvmArgsAppend = "-Djdk.attach.allowAttachSelf=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(value = Scope.Benchmark)
+public class AccessBenchmark {
+
+	private final Object instance = new Object();
+
+	private DynagentHandle handle;
+
+	public AccessBenchmark() {
+
+		super();
+	}
+
+	@Setup(value = Level.Trial)
+	public void setup() {
+
+		if (!Dynagent.install()) { // This class becomes whitelisted
+
+			throw new IllegalStateException("Failed to install Dynagent!");
+		}
+
+		handle = Dynagent.getHandle();
+	}
+
+	@Benchmark()
+	public long staticAccess() {
+
+		return Dynagent.getObjectSize(instance);
+	}
+
+	@Benchmark()
+	public long handleAccess() {
+
+		return handle.getObjectSize(instance);
+	}
+}
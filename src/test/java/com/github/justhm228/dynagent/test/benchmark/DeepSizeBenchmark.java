@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.test.benchmark;
+
+import com.github.justhm228.dynagent.agent.Dynagent;
+import com.github.justhm228.dynagent.agent.DynagentHandle;
+import com.github.justhm228.dynagent.agent.SizeOptions;
+import java.util.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+// Compares a sequential walk of a large object graph (a map of a million entries) with a parallel one:
+@BenchmarkMode(value = Mode.AverageTime)
+@OutputTimeUnit(value = TimeUnit.MILLISECONDS)
+@Fork(value = 2, jvmArgsAppend = { "-Djdk.attach.allowAttachSelf=true", "-Xmx2g" })
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(value = Scope.Benchmark)
+public class DeepSizeBenchmark {
+
+	@Param(value = { "false", "true" })
+	public boolean parallel;
+
+	private final Map<Integer, List<String>> index = new HashMap<>();
+
+	private DynagentHandle handle;
+
+	private SizeOptions options;
+
+	public DeepSizeBenchmark() {
+
+		super();
+	}
+
+	@Setup(value = Level.Trial)
+	public void setup() {
+
+		if (!Dynagent.install()) { // This class becomes whitelisted
+
+			throw new IllegalStateException("Failed to install Dynagent!");
+		}
+
+		handle = Dynagent.getHandle();
+		options = SizeOptions.defaults().withParallel(parallel);
+
+		for (int i = 0; i < 1_000_000; i++) {
+
+			index.put(i, List.of(Integer.toString(i), Integer.toHexString(i)));
+		}
+	}
+
+	@Benchmark()
+	public long deepSize() {
+
+		return handle.getDeepObjectSize(index, options);
+	}
+}
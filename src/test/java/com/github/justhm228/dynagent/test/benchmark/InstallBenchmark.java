@@ -0,0 +1,64 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.test.benchmark;
+
+import com.github.justhm228.dynagent.agent.Dynagent;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+// Every installation needs a fresh JVM, so every fork measures a single cold installation:
+@BenchmarkMode(value = Mode.SingleShotTime)
+@OutputTimeUnit(value = TimeUnit.MILLISECONDS)
+@Fork(value = 10, jvmArgsAppend = "-Djdk.attach.allowAttachSelf=true")
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@State(value = Scope.Benchmark)
+public class InstallBenchmark {
+
+	@Param(value = { "direct", "self", "process" })
+	public String method;
+
+	public InstallBenchmark() {
+
+		super();
+	}
+
+	@Setup(value = Level.Trial)
+	public void setup() {
+
+		System.setProperty("dynagent.attach", method);
+	}
+
+	@Benchmark()
+	public boolean install() throws IllegalStateException {
+
+		if (!Dynagent.install()) {
+
+			throw new IllegalStateException("Failed to install Dynagent (" + method + ")!");
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.test.benchmark;
+
+import com.github.justhm228.dynagent.agent.Dynagent;
+import java.lang.instrument.*;
+import java.lang.reflect.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+// Compares sizes measured by the JVM on every call with sizes memoized per class (arrays are computed from a memoized
+// header size, element size and alignment), and with the caller-checked static API:
+@BenchmarkMode(value = Mode.AverageTime)
+@OutputTimeUnit(value = TimeUnit.NANOSECONDS)
+@Fork(value = 2, jvmArgsAppend = "-Djdk.attach.allowAttachSelf=true")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(value = Scope.Benchmark)
+public class SizeBenchmark {
+
+	private static final Shapes SHAPES = new Shapes();
+
+	@Param(value = { "object", "array" })
+	public String kind;
+
+	private Object instance;
+
+	private Instrumentation agent;
+
+	public SizeBenchmark() {
+
+		super();
+	}
+
+	@Setup(value = Level.Trial)
+	public void setup() {
+
+		if (!Dynagent.install()) { // This class becomes whitelisted
+
+			throw new IllegalStateException("Failed to install Dynagent!");
+		}
+
+		agent = Dynagent.getAgent();
+		instance = kind.equals("array") ? new long[1000] : new Object();
+
+		if (memoizedSize() != jvmtiSize()) {
+
+			throw new IllegalStateException("Memoized size differs!");
+		}
+	}
+
+	@Benchmark()
+	public long jvmtiSize() {
+
+		return agent.getObjectSize(instance);
+	}
+
+	@Benchmark()
+	public long memoizedSize() {
+
+		final Class<?> type = instance.getClass();
+		final Shape shape = SHAPES.get(type);
+
+		if (shape.scale == 0L) {
+
+			return shape.base != 0L ? shape.base : (shape.base = agent.getObjectSize(instance));
+		}
+
+		return (shape.base + Array.getLength(instance) * shape.scale + shape.alignment - 1L) & -shape.alignment;
+	}
+
+	@Benchmark()
+	public long staticSize() {
+
+		return Dynagent.getObjectSize(instance);
+	}
+
+	private static final class Shapes extends ClassValue<Shape> {
+
+		private Shapes() {
+
+			super();
+		}
+
+		@Override()
+		protected Shape computeValue(final Class<?> type) {
+
+			final Shape shape = new Shape();
+
+			if (type.isArray()) {
+
+				// The first length which needs one more alignment unit tells the alignment and where elements begin:
+				final Instrumentation agent = Dynagent.getAgent();
+				final Class<?> component = type.getComponentType();
+				final long empty = agent.getObjectSize(Array.newInstance(component, 0));
+
+				int length = 1;
+				long size;
+
+				while ((size = agent.getObjectSize(Array.newInstance(component, length))) == empty) {
+
+					length++;
+				}
+
+				shape.alignment = size - empty;
+				shape.scale = (agent.getObjectSize(Array.newInstance(component, length + (int) shape.alignment)) - size) / shape.alignment;
+				shape.base = empty - (length - 1) * shape.scale;
+			}
+
+			return shape;
+		}
+	}
+
+	private static final class Shape {
+
+		private long base; // A size of an object (measured on first use), or where elements of an array begin
+
+		private long scale; // A size of an array element (0 if it isn't an array)
+
+		private long alignment;
+
+		private Shape() {
+
+			super();
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2023-2025 JustHuman228
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package com.github.justhm228.dynagent.test.benchmark;
+
+import com.github.justhm228.dynagent.internal.agent.Whitelist;
+import java.util.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+
+// Compares a whitelist check guarded by a lock with the lock-free one (run it with `-t 1`, `-t 2`, `-t 4`... to
+// see how the throughput of each check scales with the number of threads), and shows that the number of rules
+// doesn't affect a repeated check:
+@BenchmarkMode(value = Mode.Throughput)
+@OutputTimeUnit(value = TimeUnit.MICROSECONDS)
+@Fork(value = 2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(value = Scope.Benchmark)
+public class WhitelistBenchmark {
+
+	private final Set<Class<?>> locked = new HashSet<>(List.of(WhitelistBenchmark.class, Object.class, String.class));
+
+	private final Whitelist whitelist = new Whitelist();
+
+	@Param(value = { "1", "1000" })
+	public int rules;
+
+	public WhitelistBenchmark() {
+
+		super();
+	}
+
+	@Setup(value = Level.Trial)
+	public void setup() {
+
+		final List<String> packages = new ArrayList<>(rules);
+
+		for (int i = 0; i < rules; i++) {
+
+			packages.add("com.example.package" + i);
+		}
+
+		whitelist.addPackages(WhitelistBenchmark.class.getModule(), packages);
+		whitelist.addAll(locked);
+	}
+
+	@Benchmark()
+	public boolean lockedCheck() {
+
+		synchronized (locked) {
+
+			return locked.contains(WhitelistBenchmark.class);
+		}
+	}
+
+	@Benchmark()
+	public boolean lockFreeCheck() {
+
+		return whitelist.contains(WhitelistBenchmark.class);
+	}
+}
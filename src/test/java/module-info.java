@@ -28,8 +28,11 @@ module dynagent.test {
 	requires java.instrument;
 	requires dynagent.base;
 	requires transitive org.junit.jupiter.api;
+	requires jmh.core;
 
 	exports com.github.justhm228.dynagent.test to org.junit.platform.commons;
 
 	opens com.github.justhm228.dynagent.test to org.junit.platform.commons;
+
+	exports com.github.justhm228.dynagent.test.benchmark to jmh.core;
 }